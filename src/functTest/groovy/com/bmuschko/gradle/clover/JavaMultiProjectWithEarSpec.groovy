@@ -81,6 +81,35 @@ class JavaMultiProjectWithEarSpec extends AbstractFunctionalTestBase {
         gradle << GRADLE_TEST_VERSIONS
     }
 
+    @Unroll def "Build a Java multi-project with the instrumented variant in an EAR (with Gradle Version #gradle)"()
+    {
+        given: "a Java multi-project with EAR"
+        projectName = 'java-multi-project-with-ear'
+        gradleVersion = gradle
+
+        when: "the EAR selects the instrumented variants"
+        build('--init-script', "$initScript", '-PcloverVariant', 'clean', 'build')
+
+        then: "the regular JAR files are not instrumented"
+        def carJar = new File(buildDir, 'projectCar/libs/projectCar.jar')
+        carJar.exists()
+        !zipContains(carJar, "clover.instrumented")
+
+        and: "the instrumented JAR files exist next to them"
+        def instrumentedCarJar = new File(buildDir, 'projectCar/libs/projectCar-clover.jar')
+        zipContains(instrumentedCarJar, "clover.instrumented")
+        zipContains(instrumentedCarJar, "Car.class")
+
+        and: "the EAR contains the instrumented JAR files"
+        def ear = new File(buildDir, 'projectEar/libs/projectEar.ear')
+        zipContains(ear, "projectDriver-clover.jar")
+        zipContains(ear, "lib/projectCar-clover.jar")
+        zipContains(getFromZip(ear, "projectDriver-clover.jar"), "clover.instrumented")
+
+        where:
+        gradle << GRADLE_TEST_VERSIONS
+    }
+
     /**
      * @returns true if the zip file contains a file with the given name.
      */
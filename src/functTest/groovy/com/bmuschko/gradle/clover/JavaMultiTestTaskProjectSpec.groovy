@@ -46,5 +46,6 @@ class JavaMultiTestTaskProjectSpec extends AbstractFunctionalTestBase {
         'for all tasks' | 'common'  | '1'                 | '1'
         'only for test' | 'include' | '1'                 | '0'
         'except test'   | 'exclude' | '0'                 | '1'
+        'shared'        | 'shared'  | '1'                 | '1'
     }
 }
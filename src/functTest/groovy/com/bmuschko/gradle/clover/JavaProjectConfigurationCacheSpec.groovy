@@ -0,0 +1,88 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bmuschko.gradle.clover
+
+import org.gradle.testkit.runner.BuildResult
+import org.gradle.testkit.runner.TaskOutcome
+import org.gradle.util.GradleVersion
+
+import spock.lang.Unroll
+
+class JavaProjectConfigurationCacheSpec extends AbstractFunctionalTestBase {
+
+    @Unroll def "Build a Java project with the configuration cache (with Gradle Version #gradle)"()
+    {
+        given: "a Java project"
+        projectName = 'java-project'
+        gradleVersion = gradle
+        File bookSource = file('src/main/java/Book.java')
+        String originalBookSource = bookSource.text
+
+        when: "the Clover report generation task is run with the configuration cache"
+        build('--configuration-cache', 'clean', 'cloverGenerateReport')
+
+        then: "the Clover report is generated"
+        cloverDb.exists()
+        cloverXmlReport.exists()
+
+        when: "the build is run again"
+        cloverXmlReport.delete()
+        BuildResult result = build('--configuration-cache', 'clean', 'cloverGenerateReport')
+
+        then: "the configuration is reused"
+        result.output.contains('Reusing configuration cache')
+
+        and: "the Clover report is generated again"
+        cloverXmlReport.exists()
+        def coverage = new XmlSlurper().parse(cloverXmlReport)
+        coverage.project.metrics.@coveredmethods == '3'
+
+        when: "a source file changes and the build is run from the reused configuration without cleaning"
+        bookSource.text = bookSource.text + '\n// changed\n'
+        result = build('--configuration-cache', 'cloverGenerateReport')
+
+        then: "the code is instrumented from the reused configuration"
+        result.output.contains('Reusing configuration cache')
+        result.task(':cloverInstrumentCodeForTest').outcome == TaskOutcome.SUCCESS
+        cloverXmlReport.exists()
+
+        cleanup:
+        bookSource.text = originalBookSource
+
+        where:
+        // The configuration cache is available since Gradle 6.6
+        gradle << GRADLE_TEST_VERSIONS.findAll { GradleVersion.version(it) >= GradleVersion.version('6.6') }
+    }
+
+    @Unroll def "Build a Java project with shared instrumentation and the configuration cache (with Gradle Version #gradle)"()
+    {
+        given: "a Java project with several Test tasks sharing the instrumentation"
+        projectName = 'java-multi-test-task-project'
+        gradleVersion = gradle
+
+        when: "the Clover report generation task is run twice with the configuration cache"
+        build('--configuration-cache', '-b', 'shared.gradle', 'clean', 'cloverGenerateReport')
+        BuildResult result = build('--configuration-cache', '-b', 'shared.gradle', 'clean', 'cloverGenerateReport')
+
+        then: "the instrumentation task is stored and the configuration is reused"
+        result.output.contains('Reusing configuration cache')
+        result.task(':cloverInstrumentCode').outcome == TaskOutcome.SUCCESS
+        cloverXmlReport.exists()
+
+        where:
+        gradle << GRADLE_TEST_VERSIONS.findAll { GradleVersion.version(it) >= GradleVersion.version('6.6') }
+    }
+}
@@ -79,4 +79,27 @@ class JavaProjectSpec extends AbstractFunctionalTestBase {
         where:
         gradle << GRADLE_TEST_VERSIONS
     }
+
+    @Unroll def "Build a Java project without test instrumentation (with Gradle Version #gradle)"()
+    {
+        given: "a Java project"
+        projectName = 'java-project'
+        gradleVersion = gradle
+
+        when: "the Clover report generation task is run with uninstrumented tests"
+        build('clean', 'cloverGenerateReport', '-PuninstrumentedTests')
+
+        then: "the main classes are covered"
+        cloverXmlReport.exists()
+        def coverage = new XmlSlurper().parse(cloverXmlReport)
+        coverage.project.metrics.@classes == '1'
+        coverage.project.metrics.@methods == '4'
+        coverage.project.metrics.@coveredmethods == '3'
+
+        and: "the tests are not instrumented"
+        coverage.testproject.size() == 0
+
+        where:
+        gradle << GRADLE_TEST_VERSIONS
+    }
 }
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bmuschko.gradle.clover.caching
+
+import spock.lang.Unroll
+
+class JavaProjectRelocatableCachingSpec extends AbstractCachingFunctionalSpec {
+
+    @Unroll def "Build a relocated Java project with relocatable instrumentation (with Gradle Version #gradle)"()
+    {
+        given: "a Java project with relocatable instrumentation"
+        withProjectTemplate('java-project')
+        gradleVersion = gradle
+        file('build.gradle') << """
+            clover {
+                relocatableInstrumentation = true
+            }
+        """
+        File originalProjectDir = projectDir
+
+        when: "the Clover report generation task is run"
+        def result = build('clean', 'cloverGenerateReport')
+
+        then: "the Clover tasks execute"
+        assertTasksExecuted(result, ':cloverInstrumentCodeForTest', ':test', ':cloverAggregateDatabases', ':cloverGenerateReport')
+
+        when: "the build is relocated and the original project is removed"
+        result = withRelocatedBuild {
+            withProjectTemplate(originalProjectDir)
+            assert originalProjectDir.deleteDir()
+            build('clean', 'cloverGenerateReport')
+        }
+
+        then: "the instrumented classes and the coverage are taken from the cache"
+        assertTasksCached(result, ':cloverInstrumentCodeForTest', ':test')
+
+        and: "the report shows the sources of the relocated project"
+        withRelocatedBuild {
+            File sourcePage = cloverHtmlReport.listFiles().collectMany { it.directory ? it.listFiles().toList() : [it] }.find { it.name == 'Book.html' }
+            assert sourcePage != null
+            assert sourcePage.text.contains('JAVA_1_8')
+            true
+        }
+
+        where:
+        gradle << GRADLE_TEST_VERSIONS
+    }
+}
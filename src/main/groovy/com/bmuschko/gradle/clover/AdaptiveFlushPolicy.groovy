@@ -0,0 +1,117 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bmuschko.gradle.clover
+
+import groovy.transform.CompileStatic
+
+/**
+ * Derives the flush interval of the {@link FlushPolicy#adaptive} flush policy from the coverage
+ * recording of previous test runs: the faster recordings grow the more often the data is flushed,
+ * runs recording little data flush rarely. Clover compiles the interval into the instrumented
+ * classes, so it adapts between builds, not while the tests run. The interval is rounded to a
+ * coarse scale, so the instrumentation only changes when the recording changes noticeably.
+ * The test runs are observed by {@link CoverageMetricsAction}.
+ */
+@CompileStatic
+final class AdaptiveFlushPolicy {
+    static final int MAX_INTERVAL = 60000
+    static final long TARGET_FLUSH_BYTES = 1024 * 1024
+    static final int MIN_FLUSHES = 10
+    private static final List<Integer> SCALE = [1, 2, 5]
+
+    private AdaptiveFlushPolicy() {}
+
+    /**
+     * Gets the flush interval for the observed test runs. The interval aims at flushing about
+     * {@link #TARGET_FLUSH_BYTES} per fork and at least {@link #MIN_FLUSHES} times per run, but never
+     * more often than the configured interval. Below {@link #MAX_INTERVAL} the interval is rounded down to 1, 2
+     * or 5 times a power of ten.
+     *
+     * @param baseInterval Configured flush interval
+     * @param statistics Observed test runs, a single instrumentation may be used by several Test tasks
+     * @return Flush interval
+     */
+    static int getInterval(int baseInterval, Collection<Statistics> statistics) {
+        long interval = MAX_INTERVAL
+        for (Statistics run : statistics) {
+            if (run == null || run.duration <= 0) {
+                return baseInterval
+            }
+            interval = Math.min(interval, run.duration.intdiv(MIN_FLUSHES) as long)
+            long bytesPerSecond = run.bytesPerSecond
+            if (bytesPerSecond > 0) {
+                interval = Math.min(interval, (TARGET_FLUSH_BYTES * 1000).intdiv(bytesPerSecond) as long)
+            }
+        }
+        (int) Math.max(interval >= MAX_INTERVAL ? (long) MAX_INTERVAL : round(interval), (long) baseInterval)
+    }
+
+    /**
+     * Rounds an interval down to 1, 2 or 5 times a power of ten.
+     *
+     * @param interval Interval
+     * @return Rounded interval
+     */
+    static long round(long interval) {
+        long rounded = 1
+        for (long magnitude = 1; magnitude <= interval; magnitude *= 10) {
+            for (int step : SCALE) {
+                if (step * magnitude <= interval) {
+                    rounded = step * magnitude
+                }
+            }
+        }
+        rounded
+    }
+
+    /**
+     * Observed coverage recording of a test run.
+     */
+    static class Statistics {
+        final long duration
+        final long recordedBytes
+        final int forks
+
+        Statistics(long duration, long recordedBytes, int forks) {
+            this.duration = duration
+            this.recordedBytes = recordedBytes
+            this.forks = Math.max(forks, 1)
+        }
+
+        long getBytesPerSecond() {
+            duration > 0 ? (recordedBytes * 1000).intdiv(duration * forks) as long : 0L
+        }
+
+        static Statistics read(File file) {
+            if (!file.file) {
+                return null
+            }
+            Properties properties = new Properties()
+            file.withInputStream { InputStream input -> properties.load(input) }
+            new Statistics(properties.getProperty('duration', '0') as long, properties.getProperty('recordedBytes', '0') as long,
+                properties.getProperty('forks', '1') as int)
+        }
+
+        void write(File file) {
+            Properties properties = new Properties()
+            properties.setProperty('duration', duration as String)
+            properties.setProperty('recordedBytes', recordedBytes as String)
+            properties.setProperty('forks', forks as String)
+            file.parentFile.mkdirs()
+            file.withOutputStream { OutputStream output -> properties.store(output, null) }
+        }
+    }
+}
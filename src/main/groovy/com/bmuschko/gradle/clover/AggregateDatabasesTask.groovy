@@ -1,20 +1,27 @@
 package com.bmuschko.gradle.clover
 
+import java.nio.file.Files
+
 import javax.inject.Inject
 
 import org.gradle.api.DefaultTask
+import org.gradle.api.file.Directory
 import org.gradle.api.file.FileCollection
-import org.gradle.api.internal.project.IsolatedAntBuilder
+import org.gradle.api.provider.Provider
 import org.gradle.api.tasks.CacheableTask
 import org.gradle.api.tasks.Classpath
 import org.gradle.api.tasks.Input
 import org.gradle.api.tasks.InputFiles
 import org.gradle.api.tasks.Internal
+import org.gradle.api.tasks.LocalState
 import org.gradle.api.tasks.OutputFile
 import org.gradle.api.tasks.PathSensitive
 import org.gradle.api.tasks.PathSensitivity
 import org.gradle.api.tasks.TaskAction
 import org.gradle.api.tasks.testing.Test
+import org.gradle.workers.WorkerExecutor
+
+import com.bmuschko.gradle.clover.internal.ForkRecordingAgent
 
 @CacheableTask
 class AggregateDatabasesTask extends DefaultTask {
@@ -30,41 +37,103 @@ class AggregateDatabasesTask extends DefaultTask {
     @Input
     String initString
 
+    /**
+     * Whether all Test tasks recorded coverage against the same instrumentation.
+     */
+    @Input
+    Boolean sharedInstrumentation
+
+    /**
+     * The engine merging the databases, does not affect the merged database.
+     */
+    @Internal
+    CloverEngine.Type engine
+
     @InputFiles
     @PathSensitive(PathSensitivity.RELATIVE)
     FileCollection cloverDbFiles = project.files()
 
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    FileCollection recordingFilesDirs = project.files()
+
+    @Internal
+    final Provider<Directory> buildDirectory = project.layout.buildDirectory
+
     @OutputFile
     File getAggregationFile() {
-        new File(project.buildDir, getInitString())
+        buildDirectory.file(getInitString()).get().asFile
+    }
+
+    /**
+     * Fingerprints of the databases merged previously.
+     */
+    @LocalState
+    File getMergeDir() {
+        new File(temporaryDir, 'merge')
     }
 
     void aggregate(Test testTask) {
         dependsOn(testTask)
         cloverDbFiles.from(testTask.ext.cloverDatabaseFile)
+        // The fork directories only exist after the tests ran, a file tree is evaluated when the task executes
+        File cloverDatabaseFile = testTask.ext.cloverDatabaseFile
+        cloverDbFiles.from(project.fileTree(cloverDatabaseFile.parentFile) {
+            include "${ForkRecordingAgent.FORK_DIR_PREFIX}*/${cloverDatabaseFile.name}"
+        })
+        recordingFilesDirs.from(testTask.ext.recordingFilesDir)
     }
     
     @Inject
-    IsolatedAntBuilder getAntBuilder() {
+    WorkerExecutor getWorkerExecutor() {
         throw new UnsupportedOperationException();
     }
 
     @TaskAction
     void aggregateDatabases() {
         if (existsAtLeastOneCloverDbFile(cloverDbFiles)) {
-            antBuilder.withClasspath(getCloverClasspath().files).execute {
-                CloverUtils.injectCloverClasspath(ant.getBuilder(), getCloverClasspath().files)
-                CloverUtils.loadCloverlib(ant.getBuilder())
-                
-                ant.'clover-merge'(initString: aggregationFile.canonicalPath) {
-                    cloverDbFiles.each { cloverDbFile ->
-                        if (cloverDbFile.exists()) {
-                            ant.cloverDb(initString: cloverDbFile.canonicalPath)
-                        }
+            List<File> existingDbFiles = cloverDbFiles.findAll { cloverDbFile -> cloverDbFile.exists() } as List<File>
+            List<File> mergedDbFiles = getSharedInstrumentation() ? collectSharedRecordings(existingDbFiles) : existingDbFiles
+
+            new CloverDatabaseMerger(workerExecutor, getCloverClasspath(), mergeDir, getEngine()).merge(mergedDbFiles, aggregationFile)
+        }
+    }
+
+    /**
+     * With shared instrumentation every Test task records coverage against a copy of the same database.
+     * Instead of merging these identical databases the recording files of all Test tasks are collected
+     * next to a single copy, so only the recordings need to be merged.
+     *
+     * @param dbFiles Clover database files of the Test tasks
+     * @return Database files to merge
+     */
+    private List<File> collectSharedRecordings(List<File> dbFiles) {
+        String dbName = dbFiles[0].name
+        if (dbFiles.any { dbFile -> dbFile.name != dbName }) {
+            logger.info 'Clover databases are not shared, merging all databases.'
+            return dbFiles
+        }
+
+        File recordingsDir = new File(temporaryDir, 'recordings')
+        recordingsDir.deleteDir()
+        recordingsDir.mkdirs()
+        File sharedDbFile = new File(recordingsDir, dbName)
+        Files.copy(dbFiles[0].toPath(), sharedDbFile.toPath())
+
+        for (File dbFile : dbFiles) {
+            for (File file : dbFile.parentFile.listFiles()) {
+                if (file.file && file.name.startsWith(dbName) && file != dbFile) {
+                    File target = new File(recordingsDir, file.name)
+                    if (target.exists()) {
+                        logger.info "Clover recording file ${file.name} exists for multiple Test tasks, merging all databases."
+                        return dbFiles
                     }
+                    Files.copy(file.toPath(), target.toPath())
                 }
             }
         }
+
+        [sharedDbFile]
     }
 
     /**
@@ -21,6 +21,7 @@ import org.gradle.api.tasks.CacheableTask
 import org.gradle.api.tasks.Input
 import org.gradle.api.tasks.InputFiles
 import org.gradle.api.tasks.Internal
+import org.gradle.api.tasks.LocalState
 import org.gradle.api.tasks.Optional
 import org.gradle.api.tasks.OutputFile
 import org.gradle.api.tasks.PathSensitive
@@ -45,6 +46,11 @@ class AggregateReportsTask extends CloverReportTask {
     @Input
     String testResultsInclude
 
+    @Override
+    protected void prepareDatabase() {
+        mergeSubprojectCloverDatabases()
+    }
+
     @Override
     void generateCodeCoverage(def ant) {
         aggregateReports(ant)
@@ -53,23 +59,23 @@ class AggregateReportsTask extends CloverReportTask {
     private void aggregateReports(def ant) {
         logger.info 'Starting to aggregate Clover code coverage reports.'
 
-        mergeSubprojectCloverDatabases(ant)
         writeReports(ant, getFilter(), getTestResultsDir(), getTestResultsInclude())
 
         logger.info 'Finished aggregating Clover code coverage reports.'
     }
 
-    private void mergeSubprojectCloverDatabases(def ant) {
-        ant.'clover-merge'(initString: "${databasePath}") {
-            databasesToMerge.each { File cloverDb ->
-                if(cloverDb.exists()) {
-                    ant.cloverDb(initString: cloverDb.canonicalPath)
-                }
-                else {
-                    logger.debug "Unable to find Clover DB file $cloverDb; subproject may not have any tests."
-                }
+    private void mergeSubprojectCloverDatabases() {
+        List<File> cloverDbs = []
+        databasesToMerge.each { File cloverDb ->
+            if(cloverDb.exists()) {
+                cloverDbs << cloverDb
+            }
+            else {
+                logger.debug "Unable to find Clover DB file $cloverDb; subproject may not have any tests."
             }
         }
+
+        new CloverDatabaseMerger(workerExecutor, getCloverClasspath(), mergeDir, getEngine()).merge(cloverDbs, databaseFile)
     }
 
     @InputFiles @PathSensitive(PathSensitivity.RELATIVE)
@@ -80,7 +86,15 @@ class AggregateReportsTask extends CloverReportTask {
 
     @OutputFile
     Provider<RegularFile> getMergedCloverDatabaseFile() {
-        return project.layout.buildDirectory.file("${getInitString()}-all")
+        return buildDirectory.file("${getInitString()}-all")
+    }
+
+    /**
+     * Fingerprints of the databases merged previously.
+     */
+    @LocalState
+    File getMergeDir() {
+        new File(temporaryDir, 'merge')
     }
 
     @Override
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bmuschko.gradle.clover
+
+import org.gradle.api.internal.project.IsolatedAntBuilder
+
+/**
+ * Runs Clover operations with the Clover Ant tasks, either in an isolated Ant builder of their own
+ * or in an Ant builder which already loaded Clover.
+ */
+class AntCloverEngine implements CloverEngine {
+    private final IsolatedAntBuilder antBuilder
+    private final Set<File> cloverClasspath
+    private final def loadedAnt
+
+    AntCloverEngine(IsolatedAntBuilder antBuilder, Set<File> cloverClasspath) {
+        this.antBuilder = antBuilder
+        this.cloverClasspath = cloverClasspath
+        this.loadedAnt = null
+    }
+
+    /**
+     * Creates an engine running the Clover Ant tasks in an Ant builder with the Clover tasks loaded.
+     *
+     * @param ant Ant builder
+     */
+    AntCloverEngine(def ant) {
+        this.antBuilder = null
+        this.cloverClasspath = null
+        this.loadedAnt = ant
+    }
+
+    @Override
+    void merge(List<File> databases, File destination) {
+        withAnt { def ant ->
+            ant.'clover-merge'(initString: destination.canonicalPath) {
+                databases.each { File database ->
+                    ant.cloverDb(initString: database.canonicalPath)
+                }
+            }
+        }
+    }
+
+    @Override
+    void instrument(Map<String, Object> attributes, File srcDir, File destDir, List<String> files,
+                    List<Map<String, Object>> statementContexts, List<Map<String, Object>> methodContexts) {
+        withAnt { def ant ->
+            ant.'clover-instr'(attributes + [srcdir: srcDir, destdir: destDir]) {
+                ant.fileset(dir: srcDir) {
+                    files.each { String file ->
+                        ant.include(name: file)
+                    }
+                }
+
+                statementContexts.each { Map<String, Object> context ->
+                    ant.statementContext(context)
+                }
+
+                methodContexts.each { Map<String, Object> context ->
+                    ant.methodContext(context)
+                }
+            }
+        }
+    }
+
+    @Override
+    void report(File database, ReportType type, File outfile, Map<String, Object> attributes) {
+        withAnt { def ant ->
+            ant.'clover-report'(initString: database.canonicalPath) {
+                ant.current(attributes + [outfile: outfile]) {
+                    ant.format(type: type.format)
+                }
+            }
+        }
+    }
+
+    private void withAnt(Closure action) {
+        if (loadedAnt != null) {
+            action.call(loadedAnt)
+            return
+        }
+
+        antBuilder.withClasspath(cloverClasspath).execute {
+            // Worker actions run without the Clover runtime service
+            CloverUtils.loadCloverlib(ant.getBuilder(), null)
+
+            action.call(ant)
+        }
+    }
+
+    @Override
+    String toString() {
+        CloverEngine.Type.ant.name()
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bmuschko.gradle.clover
+
+import java.lang.reflect.InvocationTargetException
+import java.lang.reflect.Method
+
+import org.gradle.api.GradleException
+
+import groovy.transform.CompileDynamic
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+
+/**
+ * Runs Clover operations through the command line entry points of OpenClover. Clover is not a
+ * dependency of the plugin, the entry points are loaded from the configured Clover classpath into a
+ * classloader of its own. The classloader of the last Clover classpath used is kept for subsequent
+ * operations, it is closed once another Clover classpath is used and no operation needs it anymore.
+ * <p>
+ * Operations the Clover version does not provide and options the entry points do not support, such
+ * as relative init strings or method contexts with complexity limits, run on the fallback engine.
+ */
+@Slf4j
+@CompileStatic
+class ApiCloverEngine implements CloverEngine {
+    static final String MERGE_CLASS = 'com.atlassian.clover.CloverMerge'
+    static final String INSTRUMENT_CLASS = 'com.atlassian.clover.CloverInstr'
+    static final String HTML_REPORT_CLASS = 'com.atlassian.clover.reporters.html.HtmlReporter'
+    static final String XML_REPORT_CLASS = 'com.atlassian.clover.reporters.xml.XMLReporter'
+    static final String DATABASE_CLASS = 'com.atlassian.clover.CloverDatabase'
+    static final String COVERAGE_DATA_SPEC_CLASS = 'com.atlassian.clover.CoverageDataSpec'
+
+    // clover-instr attributes and the matching CloverInstr options
+    private static final Map<String, String> INSTRUMENT_OPTIONS = [
+        initString: '-i',
+        source: '--source',
+        encoding: '-e',
+        instrumentationLevel: '--instrlevel',
+        instrumentLambda: '--instrlambda',
+        flushpolicy: '-p',
+        flushinterval: '-f'
+    ].asImmutable()
+
+    private static final Set<String> CONTEXT_ATTRIBUTES = ['name', 'regexp'].toSet().asImmutable()
+
+    private static final ClassLoaderCache CLASS_LOADERS = new ClassLoaderCache()
+
+    private final Set<File> cloverClasspath
+    private final CloverEngine fallback
+
+    ApiCloverEngine(Set<File> cloverClasspath, CloverEngine fallback) {
+        this.cloverClasspath = cloverClasspath
+        this.fallback = fallback
+    }
+
+    @Override
+    void merge(List<File> databases, File destination) {
+        List<String> args = ['-i', destination.canonicalPath]
+        args.addAll(databases.collect { File database -> database.canonicalPath })
+        if (!run(MERGE_CLASS, 'mainImpl', args)) {
+            fallback.merge(databases, destination)
+        }
+    }
+
+    @Override
+    void instrument(Map<String, Object> attributes, File srcDir, File destDir, List<String> files,
+                    List<Map<String, Object>> statementContexts, List<Map<String, Object>> methodContexts) {
+        List<String> args = getInstrumentArguments(attributes, srcDir, destDir, files, statementContexts, methodContexts)
+        if (args == null) {
+            log.info "The Clover instrumentation options are not supported by ${INSTRUMENT_CLASS}, falling back to the ${fallback} engine."
+        }
+        if (args == null || !run(INSTRUMENT_CLASS, 'mainImpl', args)) {
+            fallback.instrument(attributes, srcDir, destDir, files, statementContexts, methodContexts)
+        }
+    }
+
+    /**
+     * Gets the CloverInstr arguments matching the attributes of a {@code clover-instr} task.
+     *
+     * @return Arguments or null if the attributes are not supported by CloverInstr
+     */
+    static List<String> getInstrumentArguments(Map<String, Object> attributes, File srcDir, File destDir, List<String> files,
+                                               List<Map<String, Object>> statementContexts, List<Map<String, Object>> methodContexts) {
+        List<String> args = ['-s', srcDir.absolutePath, '-d', destDir.absolutePath]
+        for (Map.Entry<String, Object> attribute : attributes.entrySet()) {
+            if (attribute.value == null) {
+                continue
+            }
+            String option = INSTRUMENT_OPTIONS.get(attribute.key)
+            if (option == null) {
+                return null
+            }
+            args << option << attribute.value.toString()
+        }
+
+        for (Map<String, Object> context : statementContexts) {
+            args << '-sc' << "${context.name}=${context.regexp}".toString()
+        }
+        for (Map<String, Object> context : methodContexts) {
+            if (!CONTEXT_ATTRIBUTES.containsAll(context.keySet())) {
+                return null
+            }
+            args << '-mc' << "${context.name}=${context.regexp}".toString()
+        }
+
+        args.addAll(files.collect { String file -> new File(srcDir, file).absolutePath })
+        args
+    }
+
+    @Override
+    void report(File database, ReportType type, File outfile, Map<String, Object> attributes) {
+        List<String> args = getReportArguments(database, type, outfile, attributes)
+        if (args == null) {
+            log.info "The ${type.format} report options are not supported by the Clover reporters, falling back to the ${fallback} engine."
+        }
+        if (args == null || !run(type == ReportType.HTML ? HTML_REPORT_CLASS : XML_REPORT_CLASS, 'runReport', args)) {
+            fallback.report(database, type, outfile, attributes)
+        }
+    }
+
+    /**
+     * Gets the reporter arguments matching the attributes of a {@code current} report.
+     *
+     * @return Arguments or null if the report type or the attributes are not supported by the reporters
+     */
+    static List<String> getReportArguments(File database, ReportType type, File outfile, Map<String, Object> attributes) {
+        if (type != ReportType.HTML && type != ReportType.XML) {
+            return null
+        }
+
+        List<String> args = ['-i', database.canonicalPath, '-o', outfile.absolutePath]
+        if (type == ReportType.XML) {
+            // Source level details, included by default by the Ant task
+            args << '-l'
+        }
+        for (Map.Entry<String, Object> attribute : attributes.entrySet()) {
+            String value = attribute.value?.toString()
+            switch (attribute.key) {
+                case 'title':
+                    if (value) {
+                        args << '-t' << value
+                    }
+                    break
+                case 'alwaysReport':
+                    if (value == 'true') {
+                        args << '-a'
+                    }
+                    break
+                case 'includeFailedTestCoverage':
+                    if (value == 'true') {
+                        args << '-if'
+                    }
+                    break
+                case 'numThreads':
+                    if (type == ReportType.HTML && value) {
+                        args << '-tc' << value
+                    }
+                    break
+                default:
+                    if (value) {
+                        return null
+                    }
+            }
+        }
+        args
+    }
+
+    /**
+     * Reads the coverage of every application class from a database.
+     *
+     * @param database Clover database
+     * @param filter Contexts to exclude from the coverage, the Clover API is not used if set
+     * @return Number of elements and covered elements keyed by qualified class name, or null if the
+     * Clover version does not provide them
+     */
+    @CompileDynamic
+    Map<String, List<Long>> getClassMetrics(File database, String filter) {
+        if (filter) {
+            return null
+        }
+
+        List<File> files = cloverClasspath.sort(false) { File file -> file.absolutePath }
+        ClassLoaderCache.Entry entry = CLASS_LOADERS.acquire(files)
+        Thread thread = Thread.currentThread()
+        ClassLoader contextClassLoader = thread.contextClassLoader
+        thread.contextClassLoader = entry.classLoader
+        try {
+            Class<?> databaseClass = entry.classLoader.loadClass(DATABASE_CLASS)
+            Object spec = entry.classLoader.loadClass(COVERAGE_DATA_SPEC_CLASS).newInstance()
+            def model = databaseClass.loadWithCoverage(database.canonicalPath, spec).appOnlyModel
+
+            Map<String, List<Long>> classMetrics = [:]
+            model.allPackages.each { pkg ->
+                pkg.files.each { file ->
+                    file.classes.each { cls ->
+                        String className = pkg.name ? "${pkg.name}.${cls.name}" : cls.name
+                        classMetrics[className] = [cls.metrics.numElements as long, cls.metrics.numCoveredElements as long]
+                    }
+                }
+            }
+            classMetrics
+        } catch (ClassNotFoundException | MissingMethodException | MissingPropertyException e) {
+            log.info "Class metrics are not available from ${DATABASE_CLASS}: ${e.message}"
+            null
+        } finally {
+            thread.contextClassLoader = contextClassLoader
+            CLASS_LOADERS.release(entry)
+        }
+    }
+
+    /**
+     * Runs the command line entry point of a Clover tool.
+     *
+     * @return true if the tool ran, false if it is not available
+     */
+    private boolean run(String className, String methodName, List<String> args) {
+        List<File> files = cloverClasspath.sort(false) { File file -> file.absolutePath }
+        ClassLoaderCache.Entry entry = CLASS_LOADERS.acquire(files)
+        try {
+            Method entryPoint
+            try {
+                entryPoint = entry.classLoader.loadClass(className).getMethod(methodName, String[])
+            } catch (ClassNotFoundException | NoSuchMethodException e) {
+                log.info "${className} is not available in the Clover classpath, falling back to the ${fallback} engine."
+                return false
+            }
+
+            Thread thread = Thread.currentThread()
+            ClassLoader contextClassLoader = thread.contextClassLoader
+            thread.contextClassLoader = entry.classLoader
+            try {
+                int status = entryPoint.invoke(null, [args as String[]] as Object[]) as int
+                if (status != 0) {
+                    throw new GradleException("${className} ${args.join(' ')} failed with status ${status}.")
+                }
+            } catch (InvocationTargetException e) {
+                throw new GradleException("${className} ${args.join(' ')} failed.", e.targetException)
+            } finally {
+                thread.contextClassLoader = contextClassLoader
+            }
+            true
+        } finally {
+            CLASS_LOADERS.release(entry)
+        }
+    }
+
+    @Override
+    String toString() {
+        CloverEngine.Type.api.name()
+    }
+
+    /**
+     * Keeps the classloader of the last Clover classpath used. Classloaders of other classpaths are
+     * closed once the operations using them have finished.
+     */
+    @CompileStatic
+    static final class ClassLoaderCache {
+        private Entry current
+
+        synchronized Entry acquire(List<File> classpath) {
+            String key = JavaToolsCompileAction.getClasspathSignature(classpath)
+            if (current == null || current.key != key) {
+                Entry previous = current
+                current = new Entry(key, new URLClassLoader(classpath.collect { File file -> file.toURI().toURL() } as URL[], (ClassLoader) null))
+                if (previous != null) {
+                    previous.evicted = true
+                    closeIfUnused(previous)
+                }
+            }
+            current.users++
+            current
+        }
+
+        synchronized void release(Entry entry) {
+            entry.users--
+            closeIfUnused(entry)
+        }
+
+        private static void closeIfUnused(Entry entry) {
+            if (entry.evicted && entry.users == 0 && !entry.closed) {
+                entry.classLoader.close()
+                entry.closed = true
+            }
+        }
+
+        @CompileStatic
+        static final class Entry {
+            final String key
+            final URLClassLoader classLoader
+            int users
+            boolean evicted
+            boolean closed
+
+            Entry(String key, URLClassLoader classLoader) {
+                this.key = key
+                this.classLoader = classLoader
+            }
+        }
+    }
+}
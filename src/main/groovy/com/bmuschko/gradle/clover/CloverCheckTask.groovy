@@ -0,0 +1,275 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bmuschko.gradle.clover
+
+import java.lang.reflect.InvocationHandler
+import java.lang.reflect.Method
+import java.lang.reflect.Proxy
+import java.util.regex.Pattern
+
+import javax.inject.Inject
+
+import org.gradle.api.DefaultTask
+import org.gradle.api.GradleException
+import org.gradle.api.file.Directory
+import org.gradle.api.file.FileCollection
+import org.gradle.api.internal.project.IsolatedAntBuilder
+import org.gradle.api.provider.Provider
+import org.gradle.api.tasks.Classpath
+import org.gradle.api.tasks.Input
+import org.gradle.api.tasks.InputFiles
+import org.gradle.api.tasks.Internal
+import org.gradle.api.tasks.Optional
+import org.gradle.api.tasks.OutputFile
+import org.gradle.api.tasks.PathSensitive
+import org.gradle.api.tasks.PathSensitivity
+import org.gradle.api.tasks.TaskAction
+
+/**
+ * Task for checking coverage targets without generating the coverage reports. The overall and
+ * package targets are checked by Clover directly against the database, the targets it reports as
+ * not met are listed in the failure. Class targets are checked against the class metrics read from
+ * the database with the Clover API, or from an XML report written to a temporary file if the Clover
+ * version used does not provide it.
+ */
+class CloverCheckTask extends DefaultTask {
+    private static final String FAILURE_PROPERTY = 'clover.check.failed'
+
+    /**
+     * Classpath containing Clover Ant tasks.
+     */
+    @Classpath
+    FileCollection cloverClasspath
+
+    /**
+     * Clover runtime service registering the Clover Ant tasks.
+     */
+    @Internal
+    Provider<CloverRuntimeService> cloverRuntime
+
+    /**
+     * The location of the Clover coverage database.
+     */
+    @Input
+    String initString
+
+    @Optional
+    @Input
+    String target
+    @Input
+    Map<String, String> packageTargets
+    @Input
+    Map<String, String> classTargets
+    @Optional
+    @Input
+    String filter
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    FileCollection coverageDatabaseFiles
+
+    @Internal
+    final Provider<Directory> buildDirectory = project.layout.buildDirectory
+
+    @Internal
+    File getDatabaseFile() {
+        return buildDirectory.file(getInitString()).get().asFile
+    }
+
+    /**
+     * Written once the targets are met, so the check is up-to-date until the database or the targets change.
+     */
+    @OutputFile
+    File getResultFile() {
+        return buildDirectory.file("clover/${name}.txt").get().asFile
+    }
+
+    @Inject
+    IsolatedAntBuilder getAntBuilder() {
+        throw new UnsupportedOperationException();
+    }
+
+    @TaskAction
+    void check() {
+        resultFile.delete()
+        if (!getTarget() && !getPackageTargets() && !getClassTargets()) {
+            logger.info 'No Clover coverage targets defined, skipping check.'
+            return
+        }
+        if (!databaseFile.exists()) {
+            logger.info "Clover database ${databaseFile} not found, skipping check."
+            return
+        }
+
+        List<String> violations = []
+        File xmlReport = new File(temporaryDir, 'clover.xml')
+        xmlReport.delete()
+        Map<String, List<Long>> classMetrics = getClassTargets() ?
+            new ApiCloverEngine(getCloverClasspath().files, null).getClassMetrics(databaseFile, getFilter()) : null
+
+        antBuilder.withClasspath(getCloverClasspath().files).execute {
+            CloverUtils.loadCloverlib(ant.getBuilder(), getCloverRuntime())
+
+            if (getTarget() || getPackageTargets()) {
+                Map arguments = [initString: databaseFile.canonicalPath, haltOnFailure: false, failureProperty: FAILURE_PROPERTY]
+                if (getTarget()) {
+                    arguments.target = getTarget()
+                }
+                if (getFilter()) {
+                    arguments.filter = getFilter()
+                }
+
+                List<String> messages = []
+                def recorder = createMessageRecorder(ant.project, 'clover-check', messages)
+                ant.project.addBuildListener(recorder)
+                try {
+                    ant.'clover-check'(arguments) {
+                        getPackageTargets().each { String regex, String packageTarget ->
+                            ant.'package'(regex: regex, target: packageTarget)
+                        }
+                    }
+                } finally {
+                    ant.project.removeBuildListener(recorder)
+                }
+
+                if (ant.project.getProperty(FAILURE_PROPERTY)) {
+                    violations.addAll(messages ?: ['Overall or package coverage targets not met.'])
+                }
+            }
+
+            if (getClassTargets() && classMetrics == null) {
+                logger.info 'Class metrics are not available from the Clover API, reading them from an XML report.'
+                Map formatArguments = [type: ReportType.XML.format]
+                if (getFilter()) {
+                    formatArguments.filter = getFilter()
+                }
+                ant.'clover-report'(initString: databaseFile.canonicalPath) {
+                    current(outfile: xmlReport) {
+                        format(formatArguments)
+                    }
+                }
+            }
+        }
+
+        if (getClassTargets()) {
+            violations.addAll(findClassViolations(classMetrics ?: readClassMetrics(xmlReport), getClassTargets()))
+        }
+
+        if (!violations.empty) {
+            throw new GradleException("Clover coverage check failed:\n  ${violations.join('\n  ')}")
+        }
+        resultFile.parentFile.mkdirs()
+        resultFile.text = "Clover coverage targets met by ${databaseFile.name}.\n"
+        logger.info 'Clover coverage check passed.'
+    }
+
+    /**
+     * Creates a listener recording the warnings and errors logged by the Ant tasks with the given name.
+     * The listener implements the Ant interface of the given project's classloader, which is not the
+     * one visible to the plugin.
+     *
+     * @param antProject Ant project
+     * @param taskName Name of the tasks to record the messages of
+     * @param messages Recorded messages
+     * @return Build listener
+     */
+    static Object createMessageRecorder(Object antProject, String taskName, List<String> messages) {
+        ClassLoader antClassLoader = antProject.getClass().getClassLoader()
+        Class<?> listenerType = antClassLoader.loadClass('org.apache.tools.ant.BuildListener')
+        Proxy.newProxyInstance(antClassLoader, [listenerType] as Class[], new MessageRecorder(taskName, messages))
+    }
+
+    private static class MessageRecorder implements InvocationHandler {
+        // Priority of Ant warnings, errors have a lower priority value
+        private static final int WARN = 1
+
+        private final String taskName
+        private final List<String> messages
+
+        MessageRecorder(String taskName, List<String> messages) {
+            this.taskName = taskName
+            this.messages = messages
+        }
+
+        @Override
+        Object invoke(Object proxy, Method method, Object[] args) {
+            if (method.name == 'messageLogged') {
+                def event = args[0]
+                String message = event.message?.trim()
+                if (message && event.priority <= WARN && event.task?.taskName == taskName) {
+                    messages << message
+                }
+            } else if (method.name == 'equals') {
+                return proxy.is(args[0])
+            } else if (method.name == 'hashCode') {
+                return System.identityHashCode(proxy)
+            } else if (method.name == 'toString') {
+                return "${taskName} message recorder".toString()
+            }
+            null
+        }
+    }
+
+    /**
+     * Reads the coverage of every class from an XML report.
+     *
+     * @param xmlReport Clover XML report
+     * @return Number of elements and covered elements keyed by qualified class name
+     */
+    static Map<String, List<Long>> readClassMetrics(File xmlReport) {
+        Map<String, List<Long>> classMetrics = [:]
+        def coverage = new XmlSlurper().parse(xmlReport)
+        coverage.project.package.each { pkg ->
+            pkg.file.'class'.each { cls ->
+                def metrics = cls.metrics
+                long elements = metrics.@elements.text() ? metrics.@elements.text() as long : 0L
+                long coveredElements = metrics.@coveredelements.text() ? metrics.@coveredelements.text() as long : 0L
+                classMetrics["${pkg.@name}.${cls.@name}".toString()] = [elements, coveredElements]
+            }
+        }
+        classMetrics
+    }
+
+    /**
+     * Finds the classes not meeting their coverage target.
+     *
+     * @param classMetrics Number of elements and covered elements keyed by qualified class name
+     * @param classTargets Coverage targets keyed by regular expressions matching qualified class names
+     * @return Violations, one line each
+     */
+    static List<String> findClassViolations(Map<String, List<Long>> classMetrics, Map<String, String> classTargets) {
+        Map<Pattern, BigDecimal> targets = classTargets.collectEntries { String regex, String classTarget ->
+            [(Pattern.compile(regex)): parsePercentage(classTarget)]
+        }
+        List<String> violations = []
+
+        classMetrics.each { String className, List<Long> metrics ->
+            Map.Entry<Pattern, BigDecimal> classTarget = targets.find { pattern, value -> pattern.matcher(className).matches() }
+            if (classTarget == null || metrics[0] == 0L) {
+                return
+            }
+
+            BigDecimal percentage = new BigDecimal(metrics[1]) * 100 / new BigDecimal(metrics[0])
+            if (percentage < classTarget.value) {
+                violations << String.format('class %s: %.1f%% < %s%%', className, percentage, classTarget.value.toPlainString())
+            }
+        }
+        violations
+    }
+
+    private static BigDecimal parsePercentage(String percentage) {
+        new BigDecimal(percentage.trim().replace('%', ''))
+    }
+}
@@ -25,6 +25,7 @@ class CloverCompilerConvention {
     String sourceCompatibility
     String targetCompatibility
     File executable
+    boolean daemon = false
     boolean debug = false
     String additionalArgs = null
     Map additionalGroovycOpts = null
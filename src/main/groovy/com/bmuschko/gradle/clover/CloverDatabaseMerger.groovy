@@ -0,0 +1,147 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bmuschko.gradle.clover
+
+import java.nio.charset.StandardCharsets
+import java.security.MessageDigest
+
+import org.gradle.api.file.FileCollection
+import org.gradle.workers.WorkQueue
+import org.gradle.workers.WorkerExecutor
+
+import com.bmuschko.gradle.clover.internal.ForkRecordingAgent
+
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+
+/**
+ * Merges Clover databases in a worker. Clover loads the models of all merged databases at once,
+ * merging them in smaller groups would not lower the memory needed for the final merge.
+ * <p>
+ * The fingerprints of the merged databases are kept in the work directory. If none of them changed
+ * since the previous merge and its result is still there, the merge is skipped. A merged database
+ * cannot be updated with the coverage of a single changed input, so otherwise all databases are
+ * merged again.
+ */
+@Slf4j
+@CompileStatic
+class CloverDatabaseMerger {
+    private static final String CLASSPATH_KEY = 'classpath'
+
+    private final WorkerExecutor workerExecutor
+    private final FileCollection cloverClasspath
+    private final File workDir
+    private final CloverEngine.Type engine
+
+    /**
+     * @param workerExecutor Worker executor running the merge
+     * @param cloverClasspath Classpath containing Clover Ant tasks
+     * @param workDir Directory for the fingerprints of the merged databases, kept between merges
+     * @param engine Engine running the merge
+     */
+    CloverDatabaseMerger(WorkerExecutor workerExecutor, FileCollection cloverClasspath, File workDir, CloverEngine.Type engine) {
+        this.workerExecutor = workerExecutor
+        this.cloverClasspath = cloverClasspath
+        this.workDir = workDir
+        this.engine = engine
+    }
+
+    /**
+     * Merges the given databases.
+     *
+     * @param databases Clover databases
+     * @param destination Merged Clover database
+     */
+    void merge(List<File> databases, File destination) {
+        Properties fingerprints = new Properties()
+        fingerprints.setProperty(CLASSPATH_KEY, getFingerprint(cloverClasspath.files.collect { File file -> getFingerprint(file) }.sort()))
+        databases.each { File database ->
+            fingerprints.setProperty(database.absolutePath, getDatabaseFingerprint(database))
+        }
+
+        File fingerprintsFile = new File(workDir, "${destination.name}.properties")
+        Properties previousFingerprints = readFingerprints(fingerprintsFile)
+        if (destination.exists() && previousFingerprints == fingerprints) {
+            log.info "Clover databases merged into ${destination} are unchanged, skipping the merge."
+            return
+        }
+
+        List<String> changed = fingerprints.stringPropertyNames().findAll { String key ->
+            previousFingerprints.getProperty(key) != fingerprints.getProperty(key)
+        }.sort()
+        log.info "Merging ${databases.size()} Clover databases into ${destination}, changed since the previous merge: ${changed}."
+
+        fingerprintsFile.delete()
+        WorkQueue workQueue = workerExecutor.noIsolation()
+        workQueue.submit(MergeDatabasesAction) { MergeDatabasesAction.Parameters parameters ->
+            parameters.cloverClasspath.from(cloverClasspath)
+            parameters.databases.from(databases)
+            parameters.destination.set(destination)
+            parameters.engine.set(engine)
+        }
+        workQueue.await()
+
+        workDir.mkdirs()
+        fingerprintsFile.withOutputStream { OutputStream output -> fingerprints.store(output, null) }
+    }
+
+    private static Properties readFingerprints(File file) {
+        Properties properties = new Properties()
+        if (file.file) {
+            file.withInputStream { InputStream input -> properties.load(input) }
+        }
+        properties
+    }
+
+    static String getFingerprint(File file) {
+        "${file.absolutePath}:${file.length()}:${file.lastModified()}"
+    }
+
+    /**
+     * Gets the fingerprint of a database to merge. The coverage is kept in the recording files next to
+     * the registry, in the recording directories of the forks as well, and the registry of a test task is
+     * a link whose size and modification time stay the same across test runs. So the recording files are
+     * part of the fingerprint.
+     *
+     * @param database Clover database
+     * @return Fingerprint
+     */
+    static String getDatabaseFingerprint(File database) {
+        List<String> values = [getFingerprint(database)]
+        List<File> dirs = [database.parentFile]
+        dirs.addAll(database.parentFile.listFiles({ File file ->
+            file.directory && file.name.startsWith(ForkRecordingAgent.FORK_DIR_PREFIX)
+        } as FileFilter)?.toList() ?: [])
+        for (File dir : dirs) {
+            List<File> recordingFiles = dir.listFiles({ File file ->
+                file.file && file.name.startsWith(database.name) && file.name != database.name
+            } as FileFilter)?.toList() ?: []
+            recordingFiles.sort { File file -> file.absolutePath }.each { File file ->
+                values << getFingerprint(file)
+            }
+        }
+        getFingerprint(values)
+    }
+
+    static String getFingerprint(List<String> values) {
+        MessageDigest digest = MessageDigest.getInstance('SHA-1')
+        values.each { String value ->
+            digest.update(value.getBytes(StandardCharsets.UTF_8))
+            digest.update((byte) 0)
+        }
+        new BigInteger(1, digest.digest()).toString(16).padLeft(40, '0')
+    }
+}
@@ -19,12 +19,21 @@ import static com.bmuschko.gradle.clover.CloverUtils.*
 
 import java.util.concurrent.Callable
 
+import org.gradle.api.InvalidUserDataException
 import org.gradle.api.Plugin
 import org.gradle.api.Project
 import org.gradle.api.Task
+import org.gradle.api.artifacts.Configuration
+import org.gradle.api.attributes.Attribute
+import org.gradle.api.attributes.AttributeContainer
+import org.gradle.api.attributes.Bundling
+import org.gradle.api.attributes.Category
+import org.gradle.api.attributes.LibraryElements
+import org.gradle.api.attributes.Usage
 import org.gradle.api.file.FileCollection
 import org.gradle.api.file.FileTreeElement
 import org.gradle.api.plugins.JavaPlugin
+import org.gradle.api.provider.Provider
 import org.gradle.api.tasks.PathSensitivity
 import org.gradle.api.tasks.SourceSet
 import org.gradle.api.tasks.bundling.Jar
@@ -45,11 +54,22 @@ class CloverPlugin implements Plugin<Project> {
     static final String GENERATE_REPORT_TASK_NAME = 'cloverGenerateReport'
     static final String AGGREGATE_REPORTS_TASK_NAME = 'cloverAggregateReports'
     static final String AGGREGATE_DATABASES_TASK_NAME = 'cloverAggregateDatabases'
+    static final String CHECK_TASK_NAME = 'cloverCheck'
+    static final String SHARED_INSTRUMENTATION_TASK_NAME = 'cloverInstrumentCode'
+    static final String INSTRUMENTED_JAR_TASK_NAME = 'cloverJar'
+    static final String INSTRUMENTED_ELEMENTS_CONFIGURATION_NAME = 'cloverInstrumentedElements'
+    static final String INSTRUMENTED_CLASSIFIER = 'clover'
+    static final String INSTRUMENTED_CAPABILITY_SUFFIX = 'clover-instrumented'
+    static final Attribute<Boolean> INSTRUMENTED_ATTRIBUTE = Attribute.of('com.bmuschko.clover.instrumented', Boolean)
     static final String REPORT_GROUP = 'report'
     static final String CLOVER_GROUP = 'clover'
     static final String DEFAULT_CLOVER_SNAPSHOT = '.clover/coverage.db.snapshot'
     static final String DEFAULT_CLOVER_HISTORY_DIR = '.clover/historypoints'
-    
+
+    // Test tasks using an instrumentation task, keyed by the name of the instrumentation task
+    private final Map<String, List<Test>> instrumentedTestTasks = [:]
+    private Provider<CloverRuntimeService> cloverRuntime
+
     @CompileStatic
     @Override
     void apply(Project project) {
@@ -58,10 +78,12 @@ class CloverPlugin implements Plugin<Project> {
 
         CloverPluginConvention cloverPluginConvention = project.objects.newInstance(CloverPluginConvention)
         project.convention.plugins.clover = cloverPluginConvention
+        cloverRuntime = CloverRuntimeService.register(project.gradle)
 
         AggregateDatabasesTask aggregateDatabasesTask = configureAggregateDatabasesTask(project, cloverPluginConvention)
         configureActions(project, cloverPluginConvention, aggregateDatabasesTask)
         configureGenerateCoverageReportTask(project, cloverPluginConvention, aggregateDatabasesTask)
+        configureCheckTask(project, cloverPluginConvention, aggregateDatabasesTask)
         configureAggregateReportsTask(project, cloverPluginConvention)
     }
 
@@ -69,6 +91,8 @@ class CloverPlugin implements Plugin<Project> {
         project.tasks.withType(AggregateDatabasesTask) {
             conventionMapping.with {
                 map('initString') { getInitString(cloverPluginConvention) }
+                map('sharedInstrumentation') { cloverPluginConvention.sharedInstrumentation }
+                map('engine') { cloverPluginConvention.engine }
                 map('cloverClasspath') { project.configurations.getByName(CONFIGURATION_NAME).asFileTree }
             }
         }
@@ -105,15 +129,90 @@ class CloverPlugin implements Plugin<Project> {
         return "cloverInstrumentCodeFor${testTask.name.capitalize()}"
     }
 
+    /**
+     * Gets the instrumentation task for the given Test task. With shared instrumentation all Test tasks
+     * use the same instrumentation task, otherwise every Test task gets its own one.
+     */
+    @CompileStatic
+    private CloverInstrumentationTask createInstrumentationTask(Test test, Project project, CloverPluginConvention cloverPluginConvention, SourceSetsResolver resolver) {
+        String taskName = cloverPluginConvention.sharedInstrumentation ? SHARED_INSTRUMENTATION_TASK_NAME : getInstrumentationTaskName(test)
+        CloverInstrumentationTask instrumentCodeTask = project.tasks.findByName(taskName) as CloverInstrumentationTask
+        if (instrumentCodeTask == null) {
+            instrumentCodeTask = project.tasks.create(taskName, CloverInstrumentationTask)
+            instrumentedTestTasks[taskName] = new ArrayList<Test>()
+            configureInstrumentationTask(instrumentCodeTask, project, cloverPluginConvention, instrumentedTestTasks[taskName], resolver)
+        }
+        instrumentedTestTasks[taskName] << test
+        instrumentCodeTask
+    }
+
+    /**
+     * Maps the values of an instrumentation task. The Test tasks and the project are only referenced by the mappings,
+     * which are evaluated during configuration, the task itself keeps none of them.
+     *
+     * @param instrumentCodeTask Instrumentation task
+     * @param project Project
+     * @param cloverPluginConvention Clover plugin convention
+     * @param testTasks Test tasks using the instrumentation, with shared instrumentation Test tasks are added after the task got created
+     * @param resolver Source sets resolver
+     */
+    private void configureInstrumentationTask(CloverInstrumentationTask instrumentCodeTask, Project project, CloverPluginConvention cloverPluginConvention, List<Test> testTasks, SourceSetsResolver resolver) {
+        instrumentCodeTask.dependsOn({ testTasks.collect { it.testClassesDirs } })
+        instrumentCodeTask.usesService(cloverRuntime)
+        instrumentCodeTask.instrumentCodeAction.cloverRuntime = cloverRuntime
+
+        instrumentCodeTask.instrumentCodeAction.conventionMapping.with {
+            map('initString') { cloverPluginConvention.sharedInstrumentation ? getSharedInitString(cloverPluginConvention) : getInitString(cloverPluginConvention, testTasks[0]) }
+            map('enabled') { cloverPluginConvention.enabled }
+            map('incremental') { cloverPluginConvention.incrementalInstrumentation }
+            map('compileGroovy') { hasGroovyPlugin(project) }
+            map('cloverClasspath') { project.configurations.getByName(CONFIGURATION_NAME).asFileTree }
+            map('instrumentationClasspath') { project.files(testTasks.collect { getInstrumentationClasspath(project, it) }).asFileTree }
+            map('groovyClasspath') { getGroovyClasspath(project) }
+            map('relocatable') { cloverPluginConvention.relocatableInstrumentation }
+            map('buildDir') { project.buildDir }
+            map('projectDir') { project.projectDir }
+            map('sourceSets') { resolver.getSourceSets(testTasks) }
+            map('testSourceSets') { cloverPluginConvention.instrumentTests ? resolver.getTestSourceSets(testTasks) : [] }
+            map('sourceCompatibility') { getSourceCompatibility(project, cloverPluginConvention) }
+            map('targetCompatibility') { getTargetCompatibility(project, cloverPluginConvention) }
+            map('includes') { getIncludes(project, cloverPluginConvention) }
+            map('excludes') { cloverPluginConvention.excludes }
+            map('testIncludes') { getTestIncludes(project, cloverPluginConvention) }
+            map('testExcludes') { getTestExcludes(project, cloverPluginConvention) }
+            map('statementContexts') { cloverPluginConvention.contexts.statements }
+            map('methodContexts') { cloverPluginConvention.contexts.methods }
+            map('executable') { cloverPluginConvention.compiler.executable?.absolutePath }
+            map('compilerDaemon') { cloverPluginConvention.compiler.daemon }
+            map('encoding') { cloverPluginConvention.compiler.encoding }
+            map('instrumentLambda') { cloverPluginConvention.instrumentLambda }
+            map('debug') { cloverPluginConvention.compiler.debug }
+            map('flushinterval') { getFlushInterval(cloverPluginConvention, testTasks) }
+            map('flushpolicy') { cloverPluginConvention.flushpolicy }
+            map('instrumentationLevel') { cloverPluginConvention.instrumentationLevel }
+            map('packageInstrumentationLevels') { cloverPluginConvention.packageInstrumentationLevels }
+            map('engine') { cloverPluginConvention.engine }
+            map('additionalArgs') { cloverPluginConvention.compiler.additionalArgs }
+            map('additionalGroovycOpts') { cloverPluginConvention.compiler.additionalGroovycOpts }
+        }
+    }
+
     private void configureActionsForTask(Test test, Project project, CloverPluginConvention cloverPluginConvention, SourceSetsResolver resolver, AggregateDatabasesTask aggregateDatabasesTask) {
         if (testTaskEnabled(test, cloverPluginConvention)) {
+            // The snapshot only sees the recordings next to the registry, not the ones in the fork directories
+            if (cloverPluginConvention.perForkRecording && cloverPluginConvention.optimizeTests && cloverPluginConvention.instrumentTests) {
+                throw new InvalidUserDataException("Clover test optimization of ${test.path} is not supported with per fork recording, disable either optimizeTests or perForkRecording.")
+            }
+
             // Add instrumentation task
-            def instrumentCodeTask = project.tasks.create(getInstrumentationTaskName(test), CloverInstrumentationTask, cloverPluginConvention, test, resolver)
+            def instrumentCodeTask = createInstrumentationTask(test, project, cloverPluginConvention, resolver)
 
-            FileCollection instrumentedClassDirs = instrumentCodeTask.instrumentedMainClasses
-            FileCollection instrumentedTestClassDirs = instrumentCodeTask.instrumentedTestClasses
-            FileCollection originalClassDirs = instrumentCodeTask.originalMainClasses
-            FileCollection originalTestClassDirs = instrumentCodeTask.originalTestClasses
+            // A shared instrumentation task covers the source sets of all Test tasks, so only pick the ones of this task
+            FileCollection instrumentedClassDirs = project.files({ resolver.getSourceSets(test).collect { it.instrumentedClassesDir } }) { builtBy instrumentCodeTask }
+            // Without test instrumentation the tests run from their original classes against the instrumented main classes
+            FileCollection instrumentedTestClassDirs = project.files({ getInstrumentedTestSourceSets(cloverPluginConvention, resolver, test).collect { it.instrumentedClassesDir } }) { builtBy instrumentCodeTask }
+            FileCollection originalClassDirs = project.files { resolver.getSourceSets(test).collect { it.classesDir } }
+            FileCollection originalTestClassDirs = project.files { getInstrumentedTestSourceSets(cloverPluginConvention, resolver, test).collect { it.classesDir } }
 
             // NB: I believe this is a bug in one of the Android plugins used in the
             // user's build who reported this in Issue #111, adding some defensive
@@ -125,59 +224,175 @@ class CloverPlugin implements Plugin<Project> {
             test.classpath = instrumentedClassDirs + instrumentedTestClassDirs + test.classpath - originalClassDirs - originalTestClassDirs
 
             test.ext.originalTestClassesDir = test.getTestClassesDirs()
-            test.getConventionMapping().map("testClassesDirs") { instrumentedTestClassDirs }
+            test.getConventionMapping().map("testClassesDirs") { cloverPluginConvention.instrumentTests ? instrumentedTestClassDirs : test.ext.originalTestClassesDir }
 
             test.classpath = test.classpath + project.configurations.getByName(CONFIGURATION_NAME)
 
+            // The adaptive flush policy needs the measurements even if no metrics are written. The actions are added before
+            // the other Clover actions, so the test duration is measured right around the test execution: doFirst actions
+            // run in reverse order of their addition, doLast actions in order.
+            if (cloverPluginConvention.coverageMetrics || cloverPluginConvention.flushpolicy == FlushPolicy.adaptive) {
+                CoverageMetricsAction coverageMetricsAction = createCoverageMetricsAction(cloverPluginConvention, project, instrumentCodeTask, test)
+                test.doFirst coverageMetricsAction.startAction
+                test.doLast coverageMetricsAction
+            }
+
             // Optimize how tests are executed based on previous results
+            test.usesService(cloverRuntime)
             OptimizeTestSetAction optimizeTestSetAction = createOptimizeTestSetAction(cloverPluginConvention, project, resolver, test)
             test.doFirst optimizeTestSetAction
             test.include optimizeTestSetAction // action is also a file inclusion spec
 
             // Generate recording files into a separate directory.  Because the database file and the recording files need to be
-            // in the same directory, we make a copy of the database file so that we can keep the outputs separate between the
-            // two tasks and avoid any overlaps.
+            // in the same directory, the database file is hard linked (copied where links are not supported) into it so that we
+            // can keep the outputs separate between the two tasks and avoid any overlaps. The linked registry keeps its size and
+            // modification time across test runs, so fingerprints of the coverage have to look at the recording files as well.
             test.ext.recordingFilesDir = project.file { new File(instrumentCodeTask.cloverDatabaseFile.parentFile, test.name) }
             test.ext.cloverDatabaseFile = project.file { new File(test.ext.recordingFilesDir, instrumentCodeTask.cloverDatabaseFile.name) }
-            test.doFirst {
-                project.sync {
-                    from instrumentCodeTask.cloverDatabaseFile
-                    into test.ext.recordingFilesDir
-                }
-                systemProperty 'clover.initstring', ext.cloverDatabaseFile.absolutePath
-            }
+            test.doFirst createSyncCloverDatabaseAction(project, instrumentCodeTask, test)
+            test.doFirst createConfigureTestJvmAction(cloverPluginConvention, project, test)
             test.inputs.file(instrumentCodeTask.cloverDatabaseFile).withPropertyName('cloverDatabaseFile').withPathSensitivity(PathSensitivity.RELATIVE)
             test.outputs.dir(test.ext.recordingFilesDir).withPropertyName('coverageRecordingFiles')
 
             // Create a snapshot after tests have executed
             test.doLast createCreateSnapshotAction(cloverPluginConvention, project, test)
 
+            if (cloverPluginConvention.coverageMetrics) {
+                test.ext.coverageMetricsFile = project.file { new File(test.ext.recordingFilesDir.parentFile, "${test.name}-metrics.json") }
+                test.outputs.file(test.ext.coverageMetricsFile).withPropertyName('coverageMetrics')
+            }
+
+            if (test.name == JavaPlugin.TEST_TASK_NAME) {
+                project.pluginManager.withPlugin('java') {
+                    configureInstrumentedVariant(project, instrumentedClassDirs)
+                }
+            }
+
             if (project.hasProperty('cloverInstrumentedJar')) {
                 // If we are generating instrumented JAR files make sure the jar
                 // task now consumes the instrumented classes
                 project.pluginManager.withPlugin('java') {
                     project.tasks.withType(Jar) { Jar jar ->
+                        if (jar.name == INSTRUMENTED_JAR_TASK_NAME) {
+                            return
+                        }
                         jar.from instrumentedClassDirs
+                        // The prefixes of the original class directories are resolved once instead of for every file
+                        List<String> originalClassPaths = null
                         jar.exclude { FileTreeElement element ->
-                            originalClassDirs.any { classesDir -> element.file.canonicalPath.startsWith(classesDir.canonicalPath) }
+                            if (originalClassPaths == null) {
+                                originalClassPaths = originalClassDirs.files.collectMany { File classesDir ->
+                                    [classesDir.absolutePath + File.separator, classesDir.canonicalPath + File.separator]
+                                }.unique()
+                            }
+                            String path = element.file.absolutePath
+                            originalClassPaths.any { String classesPath -> path.startsWith(classesPath) }
                         }
                     }
                 }
             }
 
             aggregateDatabasesTask.aggregate(test)
+        } else if (cloverPluginConvention.enabled && cloverPluginConvention.coverageMetrics) {
+            // Runs of Test tasks excluded from the instrumentation are the baseline of the coverage metrics
+            CoverageMetricsAction coverageMetricsAction = createCoverageMetricsAction(cloverPluginConvention, project, null, test)
+            test.doFirst coverageMetricsAction.startAction
+            test.doLast coverageMetricsAction
+        }
+    }
+
+    /**
+     * Gets the test source sets instrumented for the given Test task, none if test instrumentation is disabled.
+     */
+    private static List<CloverSourceSet> getInstrumentedTestSourceSets(CloverPluginConvention cloverPluginConvention, SourceSetsResolver resolver, Test test) {
+        cloverPluginConvention.instrumentTests ? resolver.getTestSourceSets(test) : []
+    }
+
+    /**
+     * Publishes the instrumented classes of the main source sets as a variant of their own. The variant
+     * is only selected by consumers requiring its capability, the regular jar is left untouched.
+     */
+    private void configureInstrumentedVariant(Project project, FileCollection instrumentedClassDirs) {
+        SourceSet main = project.sourceSets.getByName(SourceSet.MAIN_SOURCE_SET_NAME)
+        Jar instrumentedJar = project.tasks.create(INSTRUMENTED_JAR_TASK_NAME, Jar)
+        instrumentedJar.description = 'Assembles a jar archive containing the Clover instrumented classes.'
+        instrumentedJar.group = CLOVER_GROUP
+        instrumentedJar.archiveClassifier.set(INSTRUMENTED_CLASSIFIER)
+        instrumentedJar.from instrumentedClassDirs
+        instrumentedJar.from main.output.resourcesDir
+        instrumentedJar.dependsOn main.processResourcesTaskName
+
+        Configuration instrumentedElements = project.configurations.create(INSTRUMENTED_ELEMENTS_CONFIGURATION_NAME)
+        instrumentedElements.description = 'Clover instrumented classes and their runtime dependencies.'
+        instrumentedElements.visible = false
+        instrumentedElements.canBeConsumed = true
+        instrumentedElements.canBeResolved = false
+        // Instrumented classes need the Clover runtime
+        instrumentedElements.extendsFrom(project.configurations.getByName(main.implementationConfigurationName),
+            project.configurations.getByName(main.runtimeOnlyConfigurationName),
+            project.configurations.getByName(CONFIGURATION_NAME))
+        instrumentedElements.attributes { AttributeContainer attributes ->
+            attributes.attribute(Usage.USAGE_ATTRIBUTE, project.objects.named(Usage, Usage.JAVA_RUNTIME))
+            attributes.attribute(Category.CATEGORY_ATTRIBUTE, project.objects.named(Category, Category.LIBRARY))
+            attributes.attribute(LibraryElements.LIBRARY_ELEMENTS_ATTRIBUTE, project.objects.named(LibraryElements, LibraryElements.JAR))
+            attributes.attribute(Bundling.BUNDLING_ATTRIBUTE, project.objects.named(Bundling, Bundling.EXTERNAL))
+            attributes.attribute(INSTRUMENTED_ATTRIBUTE, true)
+        }
+        instrumentedElements.outgoing.capability("${project.group}:${project.name}-${INSTRUMENTED_CAPABILITY_SUFFIX}:${project.version}")
+        instrumentedElements.outgoing.artifact(instrumentedJar)
+    }
+
+    private ConfigureTestJvmAction createConfigureTestJvmAction(CloverPluginConvention cloverPluginConvention, Project project, Test testTask) {
+        ConfigureTestJvmAction configureTestJvmAction = project.objects.newInstance(ConfigureTestJvmAction)
+        configureTestJvmAction.conventionMapping.with {
+            map('cloverDatabaseFile') { testTask.ext.cloverDatabaseFile }
+            map('perForkRecording') { cloverPluginConvention.perForkRecording }
+            map('agentJar') { new File(testTask.temporaryDir, 'clover-fork-recording.jar') }
+        }
+        configureTestJvmAction
+    }
+
+    private SyncCloverDatabaseAction createSyncCloverDatabaseAction(Project project, CloverInstrumentationTask instrumentCodeTask, Test testTask) {
+        SyncCloverDatabaseAction syncCloverDatabaseAction = project.objects.newInstance(SyncCloverDatabaseAction)
+        syncCloverDatabaseAction.conventionMapping.with {
+            map('cloverDatabaseFile') { instrumentCodeTask.cloverDatabaseFile }
+            map('recordingFilesDir') { testTask.ext.recordingFilesDir }
+        }
+        syncCloverDatabaseAction
+    }
+
+    /**
+     * Creates the action measuring the coverage recording of a test task, the instrumentation task is null
+     * for uninstrumented test tasks.
+     */
+    private CoverageMetricsAction createCoverageMetricsAction(CloverPluginConvention cloverPluginConvention, Project project, CloverInstrumentationTask instrumentCodeTask, Test testTask) {
+        CoverageMetricsAction coverageMetricsAction = project.objects.newInstance(CoverageMetricsAction)
+        coverageMetricsAction.conventionMapping.with {
+            map('instrumented') { instrumentCodeTask != null }
+            map('metricsEnabled') { cloverPluginConvention.coverageMetrics }
+            map('adaptive') { instrumentCodeTask != null && cloverPluginConvention.flushpolicy == FlushPolicy.adaptive }
+            map('baselineFile') { getCoverageBaselineFile(testTask) }
+            map('forks') { testTask.maxParallelForks }
+            if (instrumentCodeTask != null) {
+                map('cloverDatabaseFile') { testTask.ext.cloverDatabaseFile }
+                map('metricsFile') { testTask.ext.coverageMetricsFile }
+                map('statisticsFile') { getFlushStatisticsFile(testTask) }
+                map('flushinterval') { getFlushInterval(cloverPluginConvention, instrumentedTestTasks[instrumentCodeTask.name]) }
+            }
         }
+        coverageMetricsAction
     }
 
     private CreateSnapshotAction createCreateSnapshotAction(CloverPluginConvention cloverPluginConvention, Project project, Test testTask) {
         CreateSnapshotAction createSnapshotAction = project.objects.newInstance(CreateSnapshotAction)
         createSnapshotAction.conventionMapping.with {
             map('initString') { project.relativePath(testTask.ext.cloverDatabaseFile) }
-            map('optimizeTests') { cloverPluginConvention.optimizeTests }
+            map('optimizeTests') { cloverPluginConvention.optimizeTests && cloverPluginConvention.instrumentTests }
             map('snapshotFile') { getSnapshotFile(project, cloverPluginConvention, true, testTask) }
+            map('cloverDatabaseFile') { testTask.ext.cloverDatabaseFile }
             map('cloverClasspath') { project.configurations.getByName(CONFIGURATION_NAME).asFileTree }
-            map('buildDir') { project.buildDir }
         }
+        createSnapshotAction.cloverRuntime = cloverRuntime
         createSnapshotAction
     }
 
@@ -185,12 +400,14 @@ class CloverPlugin implements Plugin<Project> {
         OptimizeTestSetAction optimizeTestSetAction = project.objects.newInstance(OptimizeTestSetAction)
         optimizeTestSetAction.conventionMapping.with {
             map('initString') { project.relativePath(testTask.ext.cloverDatabaseFile) }
-            map('optimizeTests') { cloverPluginConvention.optimizeTests }
+            map('optimizeTests') { cloverPluginConvention.optimizeTests && cloverPluginConvention.instrumentTests }
             map('snapshotFile') { getSnapshotFile(project, cloverPluginConvention, false, testTask) }
+            map('cloverDatabaseFile') { testTask.ext.cloverDatabaseFile }
             map('cloverClasspath') { project.configurations.getByName(CONFIGURATION_NAME).asFileTree }
             map('testSourceSets') { resolver.getTestSourceSets(testTask) }
             map('buildDir') { project.buildDir }
         }
+        optimizeTestSetAction.cloverRuntime = cloverRuntime
         optimizeTestSetAction
     }
 
@@ -198,6 +415,8 @@ class CloverPlugin implements Plugin<Project> {
         project.tasks.withType(GenerateCoverageReportTask) { GenerateCoverageReportTask generateCoverageReportTask ->
             coverageDatabaseFiles = aggregateDatabasesTask.outputs.files
             outputs.cacheIf("Historical reports are enabled") { task -> ! task.historical }
+            cloverRuntime = this.cloverRuntime
+            usesService(this.cloverRuntime)
             conventionMapping.with {
                 map('initString') { getInitString(cloverPluginConvention) }
                 map('cloverClasspath') { project.configurations.getByName(CONFIGURATION_NAME).asFileTree }
@@ -210,6 +429,7 @@ class CloverPlugin implements Plugin<Project> {
                 map('numThreads') { cloverPluginConvention.report.numThreads }
                 map('timeoutInterval') { cloverPluginConvention.report.timeout }
                 map('reportsDir') { new File(project.buildDir, 'reports') }
+                map('sourcepath') { cloverPluginConvention.relocatableInstrumentation ? project.files { getInstrumentedSourceDirs([project]) } : null }
             }
             setCloverReportConventionMappings(project, cloverPluginConvention, generateCoverageReportTask)
         }
@@ -219,12 +439,35 @@ class CloverPlugin implements Plugin<Project> {
         generateCoverageReportTask.group = REPORT_GROUP
     }
 
+    private void configureCheckTask(Project project, CloverPluginConvention cloverPluginConvention, AggregateDatabasesTask aggregateDatabasesTask) {
+        project.tasks.withType(CloverCheckTask) {
+            coverageDatabaseFiles = aggregateDatabasesTask.outputs.files
+            cloverRuntime = this.cloverRuntime
+            usesService(this.cloverRuntime)
+            conventionMapping.with {
+                map('initString') { getInitString(cloverPluginConvention) }
+                map('cloverClasspath') { project.configurations.getByName(CONFIGURATION_NAME).asFileTree }
+                map('target') { cloverPluginConvention.coverageCheck.target ?: cloverPluginConvention.targetPercentage }
+                map('packageTargets') { cloverPluginConvention.coverageCheck.packageTargets }
+                map('classTargets') { cloverPluginConvention.coverageCheck.classTargets }
+                map('filter') { cloverPluginConvention.report.filter }
+            }
+        }
+
+        CloverCheckTask checkTask = project.tasks.create(CHECK_TASK_NAME, CloverCheckTask)
+        checkTask.description = 'Checks the Clover code coverage targets without generating reports.'
+        checkTask.group = CLOVER_GROUP
+    }
+
     private void configureAggregateReportsTask(Project project, CloverPluginConvention cloverPluginConvention) {
         project.tasks.withType(AggregateReportsTask) { AggregateReportsTask aggregateReportsTask ->
+            cloverRuntime = this.cloverRuntime
+            usesService(this.cloverRuntime)
             conventionMapping.with {
                 map('initString') { getInitString(cloverPluginConvention) }
                 map('cloverClasspath') { project.configurations.getByName(CONFIGURATION_NAME).asFileTree }
                 map('subprojectBuildDirs') { project.subprojects.collect { it.buildDir } }
+                map('engine') { cloverPluginConvention.engine }
                 map('filter') { cloverPluginConvention.report.filter }
                 map('testResultsDir') { cloverPluginConvention.report.testResultsDir }
                 map('testResultsInclude') { cloverPluginConvention.report.testResultsInclude }
@@ -233,6 +476,7 @@ class CloverPlugin implements Plugin<Project> {
                 map('numThreads') { cloverPluginConvention.report.numThreads }
                 map('timeoutInterval') { cloverPluginConvention.report.timeout }
                 map('reportsDir') { new File(project.buildDir, 'reports') }
+                map('sourcepath') { cloverPluginConvention.relocatableInstrumentation ? project.files { getInstrumentedSourceDirs(project.subprojects) } : null }
             }
             setCloverReportConventionMappings(project, cloverPluginConvention, aggregateReportsTask)
         }
@@ -254,6 +498,20 @@ class CloverPlugin implements Plugin<Project> {
         }
     }
 
+    /**
+     * Gets the source directories instrumented in the given projects.
+     *
+     * @param projects Projects
+     * @return Source directories
+     */
+    private static List<File> getInstrumentedSourceDirs(Collection<Project> projects) {
+        projects.collectMany { Project project ->
+            project.tasks.withType(CloverInstrumentationTask).collectMany { CloverInstrumentationTask task ->
+                (task.instrumentCodeAction.sourceSets + task.instrumentCodeAction.testSourceSets).collectMany { it.srcDirs }
+            }
+        }.unique()
+    }
+
     /**
      * Sets Clover report convention mappings.
      *
@@ -267,6 +525,7 @@ class CloverPlugin implements Plugin<Project> {
             map('json') { cloverPluginConvention.report.json }
             map('html') { cloverPluginConvention.report.html }
             map('pdf') { cloverPluginConvention.report.pdf }
+            map('incrementalHtml') { cloverPluginConvention.report.incrementalHtml }
 
             map('additionalColumns') { cloverPluginConvention.report.columns.jsonColumns }
 
@@ -347,7 +606,6 @@ class CloverPlugin implements Plugin<Project> {
             }
 
             sourceSets[testTask.name] = new ArrayList<CloverSourceSet>()
-            String instrumentedDirPath = "instrumented/${testTask.name}/main"
             Callable<FileCollection> classpathCallable = new Callable<FileCollection>() {
                 @Override
                 FileCollection call() {
@@ -363,8 +621,8 @@ class CloverPlugin implements Plugin<Project> {
                         name = 'java'
                         srcDirs.addAll(sourceSet.java.srcDirs)
                         classesDir = sourceSet.java.classesDirectory.get().asFile
-                        instrumentedClassesDir = project.layout.buildDirectory.dir("${instrumentedDirPath}/${name}").get().asFile
-                        classpathProvider = classpathCallable
+                        instrumentedClassesDir = getInstrumentedClassesDir(testTask, 'main', "sourceSets/${sourceSet.name}", name)
+                        compileClasspath.from(classpathCallable)
                     }
                     sourceSets[testTask.name] << cloverSourceSet
                 }
@@ -376,8 +634,8 @@ class CloverPlugin implements Plugin<Project> {
                         name = 'groovy'
                         srcDirs.addAll(sourceSet.groovy.srcDirs)
                         classesDir = sourceSet.groovy.classesDirectory.get().asFile
-                        instrumentedClassesDir = project.layout.buildDirectory.dir("${instrumentedDirPath}/${name}").get().asFile
-                        classpathProvider = classpathCallable
+                        instrumentedClassesDir = getInstrumentedClassesDir(testTask, 'main', "sourceSets/${sourceSet.name}", name)
+                        compileClasspath.from(classpathCallable)
                     }
                     sourceSets[testTask.name] << cloverSourceSet
                 }
@@ -387,9 +645,10 @@ class CloverPlugin implements Plugin<Project> {
                 cloverPluginConvention.additionalSourceSets.each { sourceSet ->
                     CloverSourceSet additionalSourceSet = CloverSourceSet.from(project.objects, sourceSet)
                     additionalSourceSet.with {
+                        name = sourceSet.getName(project.projectDir)
                         groovy = hasGroovySource(additionalSourceSet.srcDirs)
-                        instrumentedClassesDir = project.layout.buildDirectory.dir("${instrumentedDirPath}/${additionalSourceSet.name}").get().asFile
-                        classpathProvider = classpathCallable
+                        instrumentedClassesDir = getInstrumentedClassesDir(testTask, 'main', 'additional', name)
+                        compileClasspath.from(classpathCallable)
                     }
                     sourceSets[testTask.name] << additionalSourceSet
                 }
@@ -416,7 +675,6 @@ class CloverPlugin implements Plugin<Project> {
             }
 
             testSourceSets[testTask.name] = new ArrayList<CloverSourceSet>()
-            String instrumentedDirPath = "instrumented/${testTask.name}/test"
             Callable<FileCollection> classpathCallable = new Callable<FileCollection>() {
                 @Override
                 FileCollection call() {
@@ -432,8 +690,8 @@ class CloverPlugin implements Plugin<Project> {
                         name = 'java'
                         srcDirs.addAll(sourceSet.java.srcDirs)
                         classesDir = sourceSet.java.classesDirectory.get().asFile
-                        instrumentedClassesDir = project.layout.buildDirectory.dir("${instrumentedDirPath}/${name}").get().asFile
-                        classpathProvider = classpathCallable
+                        instrumentedClassesDir = getInstrumentedClassesDir(testTask, 'test', "sourceSets/${sourceSet.name}", name)
+                        compileClasspath.from(classpathCallable)
                     }
                     testSourceSets[testTask.name] << cloverSourceSet
                 }
@@ -445,8 +703,8 @@ class CloverPlugin implements Plugin<Project> {
                         name = 'groovy'
                         srcDirs.addAll(sourceSet.groovy.srcDirs)
                         classesDir = sourceSet.groovy.classesDirectory.get().asFile
-                        instrumentedClassesDir = project.layout.buildDirectory.dir("${instrumentedDirPath}/${name}").get().asFile
-                        classpathProvider = classpathCallable
+                        instrumentedClassesDir = getInstrumentedClassesDir(testTask, 'test', "sourceSets/${sourceSet.name}", name)
+                        compileClasspath.from(classpathCallable)
                     }
                     testSourceSets[testTask.name] << cloverSourceSet
                 }
@@ -456,9 +714,10 @@ class CloverPlugin implements Plugin<Project> {
                 cloverPluginConvention.additionalTestSourceSets.each { testSourceSet ->
                     CloverSourceSet additionalTestSourceSet = CloverSourceSet.from(project.objects, testSourceSet)
                     additionalTestSourceSet.with {
+                        name = testSourceSet.getName(project.projectDir)
                         groovy = hasGroovySource(additionalTestSourceSet.srcDirs)
-                        instrumentedClassesDir = project.layout.buildDirectory.dir("${instrumentedDirPath}/${additionalTestSourceSet.name}").get().asFile
-                        classpathProvider = classpathCallable
+                        instrumentedClassesDir = getInstrumentedClassesDir(testTask, 'test', 'additionalTest', name)
+                        compileClasspath.from(classpathCallable)
                     }
                     testSourceSets[testTask.name] << additionalTestSourceSet
                 }
@@ -467,6 +726,32 @@ class CloverPlugin implements Plugin<Project> {
             testSourceSets[testTask.name]
         }
 
+        /**
+         * Gets the source sets instrumented for the given Test tasks. A source set which is a test
+         * source set of one of the Test tasks is instrumented as test source set only.
+         */
+        List<CloverSourceSet> getSourceSets(Collection<Test> testTasks) {
+            List<CloverSourceSet> allTestSourceSets = getTestSourceSets(testTasks)
+            distinct(testTasks.collectMany { Test testTask -> getSourceSets(testTask) }).findAll { CloverSourceSet sourceSet ->
+                !allTestSourceSets.any { CloverSourceSet testSourceSet -> testSourceSet.instrumentedClassesDir == sourceSet.instrumentedClassesDir }
+            }
+        }
+
+        List<CloverSourceSet> getTestSourceSets(Collection<Test> testTasks) {
+            distinct(testTasks.collectMany { Test testTask -> getTestSourceSets(testTask) })
+        }
+
+        private static List<CloverSourceSet> distinct(List<CloverSourceSet> sourceSets) {
+            sourceSets.toUnique { CloverSourceSet sourceSet -> sourceSet.instrumentedClassesDir }
+        }
+
+        private File getInstrumentedClassesDir(Test testTask, String type, String sharedPath, String name) {
+            String path = cloverPluginConvention.sharedInstrumentation ?
+                "instrumented/${SHARED_INSTRUMENTATION}/${sharedPath}/${name}" :
+                "instrumented/${testTask.name}/${type}/${name}"
+            project.layout.buildDirectory.dir(path).get().asFile
+        }
+
         @CompileStatic
         private boolean hasGroovySource(Collection<File> dirs) {
             for (File dir : dirs) {
@@ -31,9 +31,15 @@ class CloverPluginConvention {
     String licenseLocation
     String initString
     boolean enabled = true
+    boolean incrementalInstrumentation = false
+    boolean sharedInstrumentation = false
+    boolean relocatableInstrumentation = false
+    boolean perForkRecording = false
+    boolean coverageMetrics = false
     Boolean useClover3 = null
     String targetPercentage
     boolean optimizeTests
+    boolean instrumentTests = true
     String snapshotFile
     String historyDir
     List<CloverSourceSet> additionalSourceSets = []
@@ -45,12 +51,16 @@ class CloverPluginConvention {
     final CloverReportConvention report
     final CloverContextsConvention contexts
     final CloverCompilerConvention compiler
+    final CloverCheckConvention coverageCheck
     List<String> includeTasks
     List<String> excludeTasks
     String instrumentLambda
     boolean debug = false
     int flushinterval = 1000
     FlushPolicy flushpolicy = FlushPolicy.directed
+    InstrumentationLevel instrumentationLevel = InstrumentationLevel.statement
+    Map<String, InstrumentationLevel> packageInstrumentationLevels = [:]
+    CloverEngine.Type engine = CloverEngine.Type.ant
 
     private final ObjectFactory objectFactory
 
@@ -60,6 +70,18 @@ class CloverPluginConvention {
         report = objectFactory.newInstance(CloverReportConvention)
         contexts = objectFactory.newInstance(CloverContextsConvention)
         compiler = objectFactory.newInstance(CloverCompilerConvention)
+        coverageCheck = objectFactory.newInstance(CloverCheckConvention)
+    }
+
+    /**
+     * Sets the instrumentation levels of packages and their subpackages.
+     *
+     * @param levels Instrumentation level or its name by package name
+     */
+    void setPackageInstrumentationLevels(Map<String, ?> levels) {
+        packageInstrumentationLevels = levels.collectEntries { String packageName, def level ->
+            [(packageName): level instanceof InstrumentationLevel ? level : InstrumentationLevel.valueOf(level as String)]
+        } as Map<String, InstrumentationLevel>
     }
 
     def clover(Action<CloverPluginConvention> action) {
@@ -101,4 +123,8 @@ class CloverPluginConvention {
     def compiler(Action<CloverCompilerConvention> action) {
         action.execute(compiler)
     }
+
+    def coverageCheck(Action<CloverCheckConvention> action) {
+        action.execute(coverageCheck)
+    }
 }
@@ -30,6 +30,7 @@ class CloverReportConvention {
     Boolean json = false
     Boolean html = false
     Boolean pdf = false
+    Boolean incrementalHtml = false
     String filter
     String testResultsDir
     String testResultsInclude = 'TEST-*.xml'
@@ -15,13 +15,18 @@
  */
 package com.bmuschko.gradle.clover
 
+import java.nio.file.Files
+
 import javax.inject.Inject
 
 import org.gradle.api.DefaultTask
 import org.gradle.api.InvalidUserDataException
+import org.gradle.api.file.Directory
 import org.gradle.api.file.FileCollection
 import org.gradle.api.internal.project.IsolatedAntBuilder
+import org.gradle.api.provider.Provider
 import org.gradle.api.tasks.*
+import org.gradle.workers.WorkerExecutor
 
 /**
  * Base class for Clover report tasks.
@@ -35,6 +40,12 @@ abstract class CloverReportTask extends DefaultTask {
     @Classpath
     FileCollection cloverClasspath
 
+    /**
+     * Clover runtime service registering the Clover Ant tasks.
+     */
+    @Internal
+    Provider<CloverRuntimeService> cloverRuntime
+
     /**
      * The location to write the Clover coverage database.
      */
@@ -67,6 +78,8 @@ abstract class CloverReportTask extends DefaultTask {
     @Input
     Boolean pdf
     @Input
+    Boolean incrementalHtml
+    @Input
     Boolean historical
 
     @Input
@@ -100,6 +113,32 @@ abstract class CloverReportTask extends DefaultTask {
     @Internal
     String cloverReportBase = "clover"
 
+    /**
+     * Title of the reports. Captured when the task is created, the project is not available while
+     * executing from the configuration cache.
+     */
+    @Input
+    String projectName = project.name
+
+    @Internal
+    final Provider<Directory> buildDirectory = project.layout.buildDirectory
+
+    /**
+     * Source directories the reports read the sources from, instead of the source locations recorded
+     * in the Clover database. Set for relocatable instrumentation, as the recorded locations may be
+     * those of the build which instrumented the code.
+     */
+    @Optional
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    FileCollection sourcepath
+
+    /**
+     * The engine merging databases and writing plain HTML and XML reports, does not affect the reports.
+     */
+    @Internal
+    CloverEngine.Type engine
+
     @OutputDirectory
     @Optional
     File getHistoryDirOrNull() {
@@ -116,6 +155,11 @@ abstract class CloverReportTask extends DefaultTask {
         throw new UnsupportedOperationException();
     }
 
+    @Inject
+    WorkerExecutor getWorkerExecutor() {
+        throw new UnsupportedOperationException();
+    }
+
     /**
      * Checks to see if at least on report type is selected.
      *
@@ -162,7 +206,9 @@ abstract class CloverReportTask extends DefaultTask {
     }
 
     /**
-     * Writes reports.
+     * Writes reports. The history point is created first, then every selected report type is written
+     * by a {@code clover-report} of its own. With the api engine HTML and XML reports without filters,
+     * test results, columns, source path or history are written by the Clover reporters instead.
      *
      * @param filter Optional filter
      */
@@ -173,21 +219,58 @@ abstract class CloverReportTask extends DefaultTask {
             createHistoryPoint(ant, filter, testResultsDir, testResultsInclude)
         }
 
+        File htmlDir = new File(cloverReportDir, 'html')
+        // The incremental HTML report is generated outside of the build directory and only the changed pages are copied
+        File generatedHtmlDir = getHtml() && getIncrementalHtml() ? Files.createTempDirectory('clover-html').toFile() : null
+
+        Map<ReportType, File> reports = [:]
         if(getXml()) {
-            writeReport(ant, new File(cloverReportDir, 'clover.xml'), ReportType.XML, filter, testResultsDir, testResultsInclude)
+            reports[ReportType.XML] = new File(cloverReportDir, 'clover.xml')
         }
 
         if(getJson()) {
-            writeReport(ant, new File(cloverReportDir, 'json'), ReportType.JSON, filter, testResultsDir, testResultsInclude)
+            reports[ReportType.JSON] = new File(cloverReportDir, 'json')
         }
 
         if(getHtml()) {
-            writeReport(ant, new File(cloverReportDir, 'html'), ReportType.HTML, filter, testResultsDir, testResultsInclude)
+            reports[ReportType.HTML] = generatedHtmlDir ?: htmlDir
         }
 
         if(getPdf()) {
-            writeReport(ant, new File(cloverReportDir, 'clover.pdf'), ReportType.PDF, filter, testResultsDir, testResultsInclude)
+            reports[ReportType.PDF] = new File(cloverReportDir, 'clover.pdf')
         }
+
+        try {
+            if (getEngine() == CloverEngine.Type.api) {
+                // The reporters of the api engine write plain HTML and XML reports, all other reports are written by Ant
+                CloverEngine engine = new ApiCloverEngine(getCloverClasspath().files, new AntCloverEngine(ant))
+                [ReportType.XML, ReportType.HTML].each { ReportType reportType ->
+                    if (reports.containsKey(reportType) && !filter && !testResultsDir && !getAdditionalColumns() && !getSourcepath() &&
+                        !(getHistorical() && reportType == ReportType.HTML)) {
+                        engine.report(new File(databasePath), reportType, reports.remove(reportType), getCurrentReportAttributes(reportType))
+                    }
+                }
+            }
+
+            reports.each { ReportType reportType, File outfile ->
+                writeReport(ant, outfile, reportType, filter, testResultsDir, testResultsInclude)
+            }
+
+            if (generatedHtmlDir != null) {
+                IncrementalHtmlReport.Result result = IncrementalHtmlReport.update(generatedHtmlDir, htmlDir, getHtmlManifestFile())
+                logger.info "Updated HTML report: ${result.written} pages written, ${result.deleted} pages deleted."
+            }
+        } finally {
+            generatedHtmlDir?.deleteDir()
+        }
+    }
+
+    /**
+     * Fingerprints of the HTML report pages written by the last incremental update.
+     */
+    @LocalState
+    File getHtmlManifestFile() {
+        new File(temporaryDir, 'html-pages.properties')
     }
 
     private void createHistoryPoint(def ant, String filter, String testResultsDir, String testResultsInclude) {
@@ -210,29 +293,25 @@ abstract class CloverReportTask extends DefaultTask {
      * @param filter Optional filter
      */
     private void writeReport(def ant, File outfile, ReportType reportType, String filter, String testResultsDir, String testResultsInclude) {
-        ant."clover-report"(initString: "${databasePath}") {
-            def params = [
-                outfile: outfile,
-                title: project.name,
-                alwaysReport: alwaysReport,
-                includeFailedTestCoverage: includeFailedTestCoverage,
-                numThreads: numThreads,
-            ]
-            if (timeoutInterval) {
-                params.timeout = timeoutInterval
-            }
-            if (reportType == ReportType.PDF)
-                params.summary = 'true'
-            def formatParams = [ type: reportType.format ]
-            if (filter) {
-                formatParams.filter = filter
-            }
+        def params = [outfile: outfile] + getCurrentReportAttributes(reportType)
+        def formatParams = [ type: reportType.format ]
+        if (filter) {
+            formatParams.filter = filter
+        }
 
-            current(params) {
+        ant."clover-report"(initString: "${databasePath}") {
+            ant.current(params) {
                 format(formatParams)
                 if (testResultsDir) {
                     testresults(dir: testResultsDir, includes: testResultsInclude)
                 }
+                if (getSourcepath()) {
+                    ant.sourcepath {
+                        getSourcepath().files.findAll { it.directory }.each { File srcDir ->
+                            ant.pathelement(location: srcDir)
+                        }
+                    }
+                }
                 if (getAdditionalColumns()) {
                     columns {
                         for (String jsonString in getAdditionalColumns()) {
@@ -249,7 +328,7 @@ abstract class CloverReportTask extends DefaultTask {
                 if (reportType == ReportType.PDF) {
                     outfile = new File(outfile.parentFile, 'historical.pdf')
                 }
-                def historyParams = [ outfile: outfile, title: project.name, historyDir: getHistoryDir(), historyIncludes: getHistoryIncludes() ]
+                def historyParams = [ outfile: outfile, title: getProjectName(), historyDir: getHistoryDir(), historyIncludes: getHistoryIncludes() ]
                 if (getPackageFilter()) {
                     historyParams.packageFilter = getPackageFilter()
                 }
@@ -260,7 +339,7 @@ abstract class CloverReportTask extends DefaultTask {
                     historyParams.to = getTo()
                 }
 
-                historical(historyParams) {
+                ant.historical(historyParams) {
                     format(formatParams)
                     overview()
                     coverage()
@@ -283,6 +362,27 @@ abstract class CloverReportTask extends DefaultTask {
         }
     }
 
+    /**
+     * Gets the attributes of the current report with a given type, without the output file.
+     *
+     * @param reportType Report type
+     * @return Attributes
+     */
+    private Map<String, Object> getCurrentReportAttributes(ReportType reportType) {
+        Map<String, Object> attributes = [
+            title: getProjectName(),
+            alwaysReport: alwaysReport,
+            includeFailedTestCoverage: includeFailedTestCoverage,
+            numThreads: numThreads,
+        ]
+        if (timeoutInterval) {
+            attributes.timeout = timeoutInterval
+        }
+        if (reportType == ReportType.PDF)
+            attributes.summary = 'true'
+        attributes
+    }
+
     @Internal
     protected String getDatabasePath() {
         return databaseFile.canonicalFile
@@ -291,14 +391,20 @@ abstract class CloverReportTask extends DefaultTask {
     @TaskAction
     void start() {
         validateConfiguration()
+        prepareDatabase()
         antBuilder.withClasspath(getCloverClasspath().files).execute {
-            CloverUtils.injectCloverClasspath(ant.getBuilder(), getCloverClasspath().files)
-            CloverUtils.loadCloverlib(ant.getBuilder())
+            CloverUtils.loadCloverlib(ant.getBuilder(), getCloverRuntime())
 
             generateCodeCoverage(ant)
         }
     }
 
+    /**
+     * Prepares the Clover database before the reports are generated.
+     */
+    protected void prepareDatabase() {
+    }
+
     abstract void generateCodeCoverage(def ant)
 
     @Internal
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bmuschko.gradle.clover
+
+import org.gradle.api.invocation.Gradle
+import org.gradle.api.provider.Provider
+import org.gradle.api.services.BuildService
+import org.gradle.api.services.BuildServiceParameters
+
+import com.bmuschko.gradle.clover.internal.AntResourceWorkaround
+
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+
+/**
+ * Build service shared by all Clover tasks of a build. It owns the Clover task and type definitions parsed
+ * from {@code cloverlib.xml}, one table per Clover classloader. Gradle's isolated Ant builder creates and
+ * caches one classloader per distinct Clover classpath, so every Clover configuration gets its table parsed
+ * once per build. The tables are dropped when Gradle closes the service at the end of the build.
+ */
+@Slf4j
+@CompileStatic
+abstract class CloverRuntimeService implements BuildService<BuildServiceParameters.None>, AutoCloseable {
+    static final String SERVICE_NAME = 'cloverRuntime'
+    private static final String CLOVERLIB = 'cloverlib.xml'
+
+    // Weak keys, the service never keeps a classloader alive that Gradle dropped
+    private final Map<ClassLoader, AntResourceWorkaround.Definitions> definitions = new WeakHashMap<ClassLoader, AntResourceWorkaround.Definitions>()
+
+    /**
+     * Registers the service with the build, or gets the already registered one.
+     *
+     * @param gradle Build
+     * @return Service
+     */
+    static Provider<CloverRuntimeService> register(Gradle gradle) {
+        gradle.sharedServices.registerIfAbsent(SERVICE_NAME, CloverRuntimeService) {}
+    }
+
+    /**
+     * Registers the Clover Ant tasks and types in the Ant project of the given builder, which must run with
+     * the Clover classpath.
+     *
+     * @param antBuilder Ant builder
+     */
+    void loadCloverlib(Object antBuilder) {
+        AntResourceWorkaround workaround = new AntResourceWorkaround(antBuilder)
+        AntResourceWorkaround.Definitions cloverlib
+        synchronized (definitions) {
+            cloverlib = definitions.get(workaround.antlibClassLoader)
+            if (cloverlib == null) {
+                cloverlib = workaround.parse(CLOVERLIB)
+                definitions.put(workaround.antlibClassLoader, cloverlib)
+            }
+        }
+        workaround.define(cloverlib)
+    }
+
+    @Override
+    void close() {
+        synchronized (definitions) {
+            log.debug "Dropping the Clover definitions of ${definitions.size()} classloaders."
+            definitions.clear()
+        }
+    }
+}
@@ -9,21 +9,38 @@ import org.gradle.api.tasks.Optional
 import org.gradle.api.tasks.OutputDirectory
 import org.gradle.api.tasks.PathSensitive
 import org.gradle.api.tasks.PathSensitivity
+import org.gradle.work.Incremental
 
-import java.util.concurrent.Callable
+import javax.inject.Inject
 
+import org.gradle.api.file.ConfigurableFileCollection
 import org.gradle.api.file.FileCollection
 
 import groovy.transform.CompileStatic
 
 @CompileStatic
 class CloverSourceSet {
-    @Internal
-    final UUID uuid = UUID.randomUUID()
-
     String name
 
-    @InputFiles @PathSensitive(PathSensitivity.RELATIVE) Collection<File> srcDirs = new HashSet<File>()
+    @Internal Collection<File> srcDirs = new HashSet<File>()
+
+    private final ConfigurableFileCollection sourceFiles
+    private final ConfigurableFileCollection compileClasspath
+
+    @Inject
+    CloverSourceSet(ObjectFactory objects) {
+        sourceFiles = objects.fileCollection().from({ CloverSourceSetUtils.getValidSourceDirs(this) })
+        compileClasspath = objects.fileCollection()
+    }
+
+    /**
+     * The contents of the source directories. This is the property queried for
+     * changes when instrumenting incrementally.
+     */
+    @InputFiles @Incremental @PathSensitive(PathSensitivity.RELATIVE)
+    FileCollection getSourceFiles() {
+        return sourceFiles
+    }
 
     @Internal File classesDir
     void setClassesDir(File classesDir) {
@@ -31,7 +48,9 @@ class CloverSourceSet {
     }
 
     // Workaround for limitation of @Optional (see https://github.com/gradle/gradle/issues/2016)
-    @InputDirectory @Optional @PathSensitive(PathSensitivity.RELATIVE)
+    // The original classes change with every source change, marking them incremental keeps
+    // them from forcing a full re-instrumentation.
+    @InputDirectory @Optional @Incremental @PathSensitive(PathSensitivity.RELATIVE)
     File getClassesDirIfExists() {
         return classesDir.exists() ? classesDir : null
     }
@@ -41,6 +60,11 @@ class CloverSourceSet {
         this.instrumentedClassesDir = instrumentedClassesDir
     }
 
+    /**
+     * Instrumentation level of the source set, the convention's level is used if not set.
+     */
+    @Input @Optional InstrumentationLevel instrumentationLevel
+
     private boolean groovy = false
     @Input boolean isGroovy() {
         groovy
@@ -49,25 +73,29 @@ class CloverSourceSet {
         this.groovy = groovy
     }
 
-    private transient Callable<FileCollection> classpathProvider
-
-    @Internal
-    Callable<FileCollection> getClasspathProvider() {
-        return classpathProvider
-    }
-
-    void setClasspathProvider(Callable<FileCollection> classpathProvider) {
-        this.classpathProvider = classpathProvider
-    }
-
+    /**
+     * The compile classpath of the source set. It is a file collection rather than a callable
+     * so it survives the configuration cache.
+     */
     @InputFiles @PathSensitive(PathSensitivity.RELATIVE)
-    FileCollection getCompileClasspath() {
-        return classpathProvider.call()
+    ConfigurableFileCollection getCompileClasspath() {
+        return compileClasspath
     }
 
     @Internal
     String getName() {
-        return name == null ? uuid.toString() : name
+        return getName(null)
+    }
+
+    /**
+     * Gets the name of the source set. Source sets without a name are named after their source
+     * directories relative to the given base directory, so the name is the same on every build.
+     *
+     * @param baseDir Base directory or null to use the absolute source directory paths
+     * @return Name
+     */
+    String getName(File baseDir) {
+        return name == null ? CloverSourceSetUtils.getStableName(baseDir, srcDirs) : name
     }
 
 
@@ -78,6 +106,7 @@ class CloverSourceSet {
             groovy = other.groovy
             srcDirs = other.srcDirs
             classesDir = other.classesDir
+            instrumentationLevel = other.instrumentationLevel
         }
         return newSourceSet
     }
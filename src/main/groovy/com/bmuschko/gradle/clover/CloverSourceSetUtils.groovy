@@ -15,6 +15,8 @@
  */
 package com.bmuschko.gradle.clover
 
+import java.nio.charset.StandardCharsets
+import java.security.MessageDigest
 
 import groovy.transform.CompileStatic
 
@@ -41,6 +43,22 @@ final class CloverSourceSetUtils {
         return sourceSet.srcDirs.findAll { it.exists() }
     }
 
+    /**
+     * Gets a name derived from the SHA-1 digest of the given source directory paths.
+     *
+     * @param baseDir Base directory the source directories are relativized against, may be null
+     * @param srcDirs Source directories
+     * @return Name
+     */
+    static String getStableName(File baseDir, Collection<File> srcDirs) {
+        String paths = srcDirs.collect { File srcDir ->
+            String path = baseDir != null ? baseDir.toPath().relativize(srcDir.toPath()).toString() : srcDir.absolutePath
+            path.replace(File.separatorChar, '/' as char)
+        }.sort().join(':')
+        MessageDigest digest = MessageDigest.getInstance('SHA-1')
+        'sourceSet-' + new BigInteger(1, digest.digest(paths.getBytes(StandardCharsets.UTF_8))).toString(16).padLeft(40, '0')
+    }
+
     static boolean existsDirectory(File dir) {
         dir && dir.exists()
     }
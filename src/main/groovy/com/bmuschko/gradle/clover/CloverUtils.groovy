@@ -3,6 +3,7 @@ package com.bmuschko.gradle.clover
 import org.gradle.api.Project
 import org.gradle.api.Task
 import org.gradle.api.file.FileCollection
+import org.gradle.api.provider.Provider
 import org.gradle.api.plugins.GroovyPlugin
 import org.gradle.api.tasks.testing.Test
 
@@ -13,6 +14,7 @@ import groovy.transform.CompileStatic
 
 class CloverUtils {
     static final String DEFAULT_CLOVER_DATABASE = '.clover/clover.db'
+    static final String SHARED_INSTRUMENTATION = 'shared'
     static final String DEFAULT_JAVA_INCLUDES = '**/*.java'
     static final String DEFAULT_GROOVY_INCLUDES = '**/*.groovy'
     static final String DEFAULT_JAVA_TEST_INCLUDES = '**/*Test.java'
@@ -35,6 +37,17 @@ class CloverUtils {
         "${getInitString(cloverPluginConvention)}-${testTask.name}"
     }
 
+    /**
+     * Gets init String of the Clover database shared by all Test tasks.
+     *
+     * @param cloverPluginConvention Clover plugin convention
+     * @return Init String
+     */
+    @CompileStatic
+    static String getSharedInitString(CloverPluginConvention cloverPluginConvention) {
+        "${getInitString(cloverPluginConvention)}-${SHARED_INSTRUMENTATION}"
+    }
+
     /**
      * Checks to see if Groovy or Grails plugins got applied to project.
      *
@@ -147,20 +160,43 @@ class CloverUtils {
         []
     }
 
-    static void injectCloverClasspath(Object antBuilder, Set<File> files) {
-        // Inject the Clover JAR into the Ant classloader to effectively
-        // enable it for the CloverCompilerAdapter issue #125
-        URLClassLoader antClassLoader = antBuilder.getProject().getClass().getClassLoader()
-        def currentUrls = antClassLoader.getURLs() as List
-        for (File file : files) {
-            def url = file.toURI().toURL()
-            if (!currentUrls.contains(url)) {
-                antClassLoader.addURL(url)
-            }
+    /**
+     * Gets the flush interval to instrument with. With per fork recording every fork flushes on its own,
+     * so the interval is stretched by the number of forks to keep the overall flush rate the same. The
+     * adaptive flush policy derives the interval from the previous test runs.
+     */
+    static int getFlushInterval(CloverPluginConvention cloverPluginConvention, Collection<Test> testTasks) {
+        int forks = cloverPluginConvention.perForkRecording ? (testTasks.collect { Test test -> test.maxParallelForks }.max() ?: 1) : 1
+        int interval = cloverPluginConvention.flushinterval * Math.max(forks, 1)
+        if (cloverPluginConvention.flushpolicy == FlushPolicy.adaptive) {
+            interval = AdaptiveFlushPolicy.getInterval(interval, testTasks.collect { Test test ->
+                AdaptiveFlushPolicy.Statistics.read(getFlushStatisticsFile(test))
+            })
         }
+        interval
     }
-    
-    static void loadCloverlib(Object antBuilder) {
-        new AntResourceWorkaround(antBuilder).taskdef('cloverlib.xml')
+
+    static File getFlushStatisticsFile(Test test) {
+        new File(test.temporaryDir, 'clover-flush.properties')
+    }
+
+    static File getCoverageBaselineFile(Test test) {
+        new File(test.temporaryDir, 'clover-baseline.properties')
+    }
+
+    /**
+     * Registers the Clover Ant tasks and types in the Ant project of the given builder. The Clover classes
+     * are loaded from the Ant builder's classpath, Gradle's Ant classloader is not modified. The definitions
+     * are parsed once per classloader by the Clover runtime service, or on every call without one.
+     *
+     * @param antBuilder Ant builder
+     * @param cloverRuntime Clover runtime service, may be null
+     */
+    static void loadCloverlib(Object antBuilder, Provider<CloverRuntimeService> cloverRuntime) {
+        if (cloverRuntime != null) {
+            cloverRuntime.get().loadCloverlib(antBuilder)
+        } else {
+            new AntResourceWorkaround(antBuilder).taskdef('cloverlib.xml')
+        }
     }
 }
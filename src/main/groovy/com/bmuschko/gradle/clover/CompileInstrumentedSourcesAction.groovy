@@ -0,0 +1,78 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bmuschko.gradle.clover
+
+import javax.inject.Inject
+
+import org.gradle.api.file.ConfigurableFileCollection
+import org.gradle.api.file.DirectoryProperty
+import org.gradle.api.internal.project.IsolatedAntBuilder
+import org.gradle.api.provider.ListProperty
+import org.gradle.api.provider.Property
+import org.gradle.workers.WorkAction
+import org.gradle.workers.WorkParameters
+
+import groovy.util.logging.Slf4j
+
+/**
+ * Compiles the Clover instrumented Java sources of a single source set. The sources are
+ * instrumented up front, so the compilation runs the plain Java compiler and several source
+ * sets can be compiled in parallel.
+ */
+@Slf4j
+abstract class CompileInstrumentedSourcesAction implements WorkAction<Parameters> {
+
+    interface Parameters extends WorkParameters {
+        DirectoryProperty getSourceDir()
+        ListProperty<String> getIncludes()
+        DirectoryProperty getDestinationDir()
+        ConfigurableFileCollection getClasspath()
+        Property<String> getSourceCompatibility()
+        Property<String> getTargetCompatibility()
+        Property<String> getEncoding()
+        Property<String> getExecutable()
+        Property<String> getAdditionalArgs()
+        Property<Boolean> getDebug()
+    }
+
+    @Inject
+    abstract IsolatedAntBuilder getAntBuilder()
+
+    @Override
+    void execute() {
+        Parameters parameters = getParameters()
+        File destDir = parameters.destinationDir.get().asFile
+        List<String> includes = parameters.includes.get()
+        String args = parameters.additionalArgs.getOrNull()
+
+        log.info "Compiling ${includes.size()} instrumented source files to ${destDir}."
+
+        antBuilder.execute {
+            ant.javac(destdir: destDir.canonicalPath, source: parameters.sourceCompatibility.getOrNull(),
+                      target: parameters.targetCompatibility.getOrNull(), includeantruntime: false,
+                      classpath: parameters.classpath.asPath, encoding: parameters.encoding.getOrNull(),
+                      executable: parameters.executable.getOrNull(), debug: parameters.debug.get()) {
+                src(path: parameters.sourceDir.get().asFile)
+                includes.each { include ->
+                    ant.include(name: include)
+                }
+                if (args != null && args.length() > 0) {
+                    compilerarg(line: args)
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bmuschko.gradle.clover
+
+import org.gradle.api.Action
+import org.gradle.api.Task
+import org.gradle.api.tasks.Input
+import org.gradle.api.tasks.Internal
+import org.gradle.api.tasks.testing.Test
+
+import com.bmuschko.gradle.clover.internal.ForkRecordingAgent
+
+/**
+ * Points the test JVMs to the Clover database of the test task. The location is only passed when the
+ * task executes, so it is not part of the task inputs and does not affect relocatability.
+ */
+class ConfigureTestJvmAction implements Action<Task> {
+    @Internal File cloverDatabaseFile
+    @Input boolean perForkRecording
+    @Internal File agentJar
+
+    @Override
+    void execute(Task task) {
+        Test test = (Test) task
+        String cloverDatabasePath = getCloverDatabaseFile().absolutePath
+        test.systemProperty 'clover.initstring', cloverDatabasePath
+        if (getPerForkRecording()) {
+            // Every fork records into a directory of its own
+            ForkRecordingAgent.writeJar(getAgentJar())
+            test.jvmArgs "-javaagent:${getAgentJar().absolutePath}=${cloverDatabasePath}"
+        }
+    }
+}
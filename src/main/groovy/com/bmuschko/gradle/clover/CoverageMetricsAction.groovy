@@ -0,0 +1,159 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bmuschko.gradle.clover
+
+import org.gradle.api.Action
+import org.gradle.api.Task
+import org.gradle.api.tasks.Input
+import org.gradle.api.tasks.Internal
+
+import groovy.json.JsonOutput
+import groovy.transform.CompileStatic
+
+/**
+ * Measures the coverage recording of a test task. Runs of uninstrumented test tasks only store
+ * their duration as baseline. If metrics are enabled, runs of instrumented test tasks write their
+ * duration, the number and size of the recording files to a JSON file and report them in the build
+ * output, together with the slowdown against the baseline of the same task if known. With the
+ * {@link FlushPolicy#adaptive} flush policy the measurements are also stored for {@link AdaptiveFlushPolicy}.
+ */
+class CoverageMetricsAction implements Action<Task> {
+    @Input boolean instrumented
+    @Input boolean metricsEnabled
+    @Input boolean adaptive
+    @Internal File cloverDatabaseFile
+    @Internal File metricsFile
+    @Internal File baselineFile
+    @Internal File statisticsFile
+    @Input int forks
+    // Evaluated after the statistics of this run are stored, the interval of the next instrumentation
+    @Input int flushinterval
+
+    /**
+     * Action to run before the tests, starts measuring the test duration.
+     */
+    @Internal
+    final Stopwatch startAction = new Stopwatch()
+
+    @Override
+    void execute(Task task) {
+        if (startAction.startTime <= 0) {
+            return
+        }
+
+        long duration = System.currentTimeMillis() - startAction.startTime
+        startAction.startTime = 0
+        if (!getInstrumented()) {
+            writeBaseline(getBaselineFile(), duration)
+            return
+        }
+
+        List<File> recordingFiles = getRecordingFiles(getCloverDatabaseFile())
+        Map<String, Object> metrics = getMetrics(task.path, duration, recordingFiles, readBaseline(getBaselineFile()))
+
+        String adaptiveReport = ''
+        if (getAdaptive()) {
+            new AdaptiveFlushPolicy.Statistics(duration, metrics.recordingBytes as long, getForks()).write(getStatisticsFile())
+            adaptiveReport = " Over ${getForks()} fork(s) the next instrumentation flushes every ${getFlushinterval()} ms."
+        }
+        if (!getMetricsEnabled()) {
+            if (adaptiveReport) {
+                task.logger.lifecycle "Clover adaptive flush policy of ${task.path}:${adaptiveReport}"
+            }
+            return
+        }
+
+        File file = getMetricsFile()
+        file.parentFile.mkdirs()
+        file.text = JsonOutput.prettyPrint(JsonOutput.toJson(metrics))
+
+        task.logger.lifecycle "Clover coverage of ${task.path}: ${metrics.wallTime} ms wall time" +
+            (metrics.slowdown != null ? " (${String.format('%.2f', metrics.slowdown)}x the uninstrumented run)" : '') +
+            ", ${metrics.recordingFiles} recording files of ${String.format('%.1f', (metrics.recordingBytes as long) / (1024d * 1024d))} MB" +
+            " (${metrics.globalRecordingFiles} global)." + adaptiveReport
+    }
+
+    /**
+     * Gets the metrics of an instrumented test run.
+     *
+     * @param taskPath Path of the test task
+     * @param duration Wall time of the test run
+     * @param recordingFiles Recording files written by the test run
+     * @param baselineDuration Wall time of the last uninstrumented run or null if unknown
+     * @return Metrics by name
+     */
+    @CompileStatic
+    static Map<String, Object> getMetrics(String taskPath, long duration, List<File> recordingFiles, Long baselineDuration) {
+        Map<String, Object> metrics = new LinkedHashMap<String, Object>()
+        metrics.task = taskPath
+        metrics.wallTime = duration
+        metrics.recordingFiles = recordingFiles.size()
+        metrics.recordingBytes = recordingFiles.sum(0L) { File file -> file.length() }
+        // Global recordings as opposed to per-test recordings; how often they were flushed is not recorded
+        metrics.globalRecordingFiles = recordingFiles.count { File file -> !file.name.endsWith('.s') }
+        metrics.baselineWallTime = baselineDuration
+        metrics.slowdown = baselineDuration ? duration / (double) baselineDuration : null
+        metrics
+    }
+
+    /**
+     * Gets the recording files of a test run. The database is linked or copied into the recording directories,
+     * every other file is a recording.
+     *
+     * @param cloverDatabaseFile Clover database in the recording files directory
+     * @return Recording files
+     */
+    @CompileStatic
+    static List<File> getRecordingFiles(File cloverDatabaseFile) {
+        List<File> files = []
+        if (cloverDatabaseFile.parentFile.directory) {
+            cloverDatabaseFile.parentFile.eachFileRecurse { File file ->
+                if (file.file && file.name != cloverDatabaseFile.name) {
+                    files << file
+                }
+            }
+        }
+        files
+    }
+
+    @CompileStatic
+    static Long readBaseline(File file) {
+        if (!file.file) {
+            return null
+        }
+        Properties properties = new Properties()
+        file.withInputStream { InputStream input -> properties.load(input) }
+        properties.getProperty('duration')?.toLong()
+    }
+
+    @CompileStatic
+    static void writeBaseline(File file, long duration) {
+        Properties properties = new Properties()
+        properties.setProperty('duration', duration as String)
+        file.parentFile.mkdirs()
+        file.withOutputStream { OutputStream output -> properties.store(output, null) }
+    }
+
+    @CompileStatic
+    static class Stopwatch implements Action<Task> {
+        long startTime
+
+        @Override
+        void execute(Task task) {
+            startTime = System.currentTimeMillis()
+        }
+    }
+}
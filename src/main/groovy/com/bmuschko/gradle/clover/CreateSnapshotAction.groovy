@@ -21,16 +21,20 @@ import org.gradle.api.Action
 import org.gradle.api.Task
 import org.gradle.api.file.FileCollection
 import org.gradle.api.internal.project.IsolatedAntBuilder
+import org.gradle.api.provider.Provider
 import org.gradle.api.tasks.Classpath
 import org.gradle.api.tasks.Input
 import org.gradle.api.tasks.InputDirectory
 import org.gradle.api.tasks.Internal
 import org.gradle.api.tasks.OutputFile
 
+import groovy.io.FileType
+import groovy.transform.CompileStatic
 import groovy.util.logging.Slf4j
 
 /**
- * Create code coverage snapshot action.
+ * Create code coverage snapshot action. Clover only adds the coverage of the executed tests to the
+ * snapshot, so the snapshot is left untouched if the tests did not record any coverage.
  *
  * @see https://confluence.atlassian.com/display/CLOVER/About+Test+Optimization
  * @see https://confluence.atlassian.com/display/CLOVER/Test+Optimization+Quick+Start+Guide
@@ -42,9 +46,10 @@ class CreateSnapshotAction implements Action<Task> {
     @Input String initString
     @Input boolean optimizeTests
     @Classpath FileCollection cloverClasspath
-    @Internal File buildDir
+    @Internal Provider<CloverRuntimeService> cloverRuntime
+    @Internal File cloverDatabaseFile
     @OutputFile File snapshotFile
-    
+
     @Inject
     IsolatedAntBuilder getAntBuilder() {
         throw new UnsupportedOperationException();
@@ -57,16 +62,39 @@ class CreateSnapshotAction implements Action<Task> {
 
     void createSnapshot() {
         if (getOptimizeTests()) {
+            if (!hasRecordings(getCloverDatabaseFile()) && getSnapshotFile().exists()) {
+                log.info 'No coverage recorded, keeping the Clover snapshot.'
+                return
+            }
+
             log.info 'Creating Clover snapshot.'
 
+            // Clover updates an existing snapshot in place with the coverage of the executed tests
             antBuilder.withClasspath(getCloverClasspath().files).execute {
-                CloverUtils.injectCloverClasspath(ant.getBuilder(), getCloverClasspath().files)
-                CloverUtils.loadCloverlib(ant.getBuilder())
+                CloverUtils.loadCloverlib(ant.getBuilder(), getCloverRuntime())
 
-                ant."clover-snapshot"(initString: "${getBuildDir()}/${getInitString()}", file: getSnapshotFile())
+                ant."clover-snapshot"(initString: getCloverDatabaseFile().path, file: getSnapshotFile())
             }
 
             log.info 'Finished creating Clover snapshot.'
         }
     }
+
+    /**
+     * Checks if tests recorded coverage next to the given database, also in the per fork directories.
+     *
+     * @param cloverDatabaseFile Clover database
+     * @return Flag
+     */
+    @CompileStatic
+    static boolean hasRecordings(File cloverDatabaseFile) {
+        if (!cloverDatabaseFile.parentFile.directory) {
+            return false
+        }
+        boolean recorded = false
+        cloverDatabaseFile.parentFile.eachFileRecurse(FileType.FILES) { File file ->
+            recorded = recorded || (file.name.startsWith(cloverDatabaseFile.name) && file.name != cloverDatabaseFile.name)
+        }
+        recorded
+    }
 }
@@ -127,6 +127,6 @@ class GenerateCoverageReportTask extends CloverReportTask {
     @Override
     @Internal
     File getDatabaseFile() {
-        return project.layout.buildDirectory.file(getInitString()).get().asFile
+        return buildDirectory.file(getInitString()).get().asFile
     }
 }
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bmuschko.gradle.clover
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+import java.security.MessageDigest
+import java.util.regex.Pattern
+
+import groovy.io.FileType
+import groovy.transform.CompileStatic
+
+/**
+ * Updates an HTML report directory from a freshly generated report, writing only the pages
+ * whose content changed. Pages are fingerprinted without the Clover footer carrying the generation
+ * timestamp, and the fingerprints of the last update are kept in a manifest file so the
+ * existing pages never have to be read. Pages in the top-level directory, like the index and
+ * dashboard pages, are written last.
+ */
+@CompileStatic
+final class IncrementalHtmlReport {
+    // The footer Clover writes on every page, user source shown in the pages is escaped and cannot contain the link markup
+    private static final Pattern TIMESTAMP_LINE = Pattern.compile('Report generated by\\s*(<a\\b[^>]*>\\s*)?(Open)?Clover\\b')
+    private static final List<String> TEXT_EXTENSIONS = ['.html', '.htm', '.js', '.css', '.json', '.xml', '.txt']
+
+    private IncrementalHtmlReport() {}
+
+    /**
+     * Updates the report directory.
+     *
+     * @param generatedDir Directory containing the freshly generated report
+     * @param reportDir Report directory to update
+     * @param manifestFile File holding the page fingerprints of the last update
+     * @return Number of written and deleted pages
+     */
+    static Result update(File generatedDir, File reportDir, File manifestFile) {
+        Properties previous = new Properties()
+        if (manifestFile.exists()) {
+            manifestFile.withInputStream { InputStream input -> previous.load(input) }
+        }
+
+        Properties current = new Properties()
+        List<String> pages = []
+        List<String> indexPages = []
+        generatedDir.eachFileRecurse(FileType.FILES) { File file ->
+            String path = getRelativePath(generatedDir, file)
+            current.setProperty(path, getFingerprint(file))
+            (path.contains('/') ? pages : indexPages) << path
+        }
+
+        Result result = new Result()
+        for (String path : pages + indexPages) {
+            File target = new File(reportDir, path)
+            if (!target.exists() || previous.getProperty(path) != current.getProperty(path)) {
+                target.parentFile.mkdirs()
+                Files.copy(new File(generatedDir, path).toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING)
+                result.written++
+            }
+        }
+
+        if (reportDir.exists()) {
+            reportDir.eachFileRecurse(FileType.FILES) { File file ->
+                if (!current.containsKey(getRelativePath(reportDir, file))) {
+                    file.delete()
+                    result.deleted++
+                }
+            }
+        }
+
+        manifestFile.parentFile.mkdirs()
+        manifestFile.withOutputStream { OutputStream output -> current.store(output, null) }
+        result
+    }
+
+    /**
+     * Gets the fingerprint of a page. The footer lines of text files stating when Clover generated
+     * the report are left out, so pages only differing in their timestamp are considered equal.
+     *
+     * @param file Page
+     * @return Fingerprint
+     */
+    static String getFingerprint(File file) {
+        MessageDigest digest = MessageDigest.getInstance('SHA-1')
+        if (TEXT_EXTENSIONS.any { String extension -> file.name.endsWith(extension) }) {
+            file.eachLine('UTF-8') { String line ->
+                if (!TIMESTAMP_LINE.matcher(line).find()) {
+                    digest.update(line.getBytes(StandardCharsets.UTF_8))
+                    digest.update((byte) 10)
+                }
+            }
+        } else {
+            digest.update(file.bytes)
+        }
+        new BigInteger(1, digest.digest()).toString(16).padLeft(40, '0')
+    }
+
+    private static String getRelativePath(File dir, File file) {
+        dir.toPath().relativize(file.toPath()).toString().replace(File.separatorChar, '/' as char)
+    }
+
+    static class Result {
+        int written
+        int deleted
+    }
+}
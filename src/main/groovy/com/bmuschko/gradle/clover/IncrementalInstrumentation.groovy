@@ -0,0 +1,237 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bmuschko.gradle.clover
+
+import java.nio.charset.StandardCharsets
+import java.util.regex.Matcher
+import java.util.regex.Pattern
+
+import groovy.io.FileType
+import groovy.transform.CompileStatic
+
+/**
+ * Support for re-instrumenting only the source files affected by a change.
+ *
+ * Dependents are found with a plain textual scan: a source file is considered
+ * dependent on a stale file if it mentions one of the types the stale file declares,
+ * and dependents of dependents are stale as well. This over-approximates the real
+ * dependencies but is cheap compared to compiling. The types and names found in each
+ * source file are kept in an index, so a later scan only reads the source files whose
+ * size or modification time changed since.
+ */
+@CompileStatic
+final class IncrementalInstrumentation {
+    private static final List<String> SOURCE_EXTENSIONS = ['.java', '.groovy']
+    private static final Pattern IDENTIFIER = Pattern.compile('[\\p{javaJavaIdentifierStart}][\\p{javaJavaIdentifierPart}]*')
+    private static final Pattern TYPE_DECLARATION = Pattern.compile('\\b(?:class|interface|enum|record|trait)\\s+([\\p{javaJavaIdentifierStart}][\\p{javaJavaIdentifierPart}]*)')
+
+    private IncrementalInstrumentation() {}
+
+    static boolean isSourceFile(File file) {
+        SOURCE_EXTENSIONS.any { String extension -> file.name.endsWith(extension) }
+    }
+
+    /**
+     * Gets the changed files plus all source files of the given source sets which reference them,
+     * directly or through other source files.
+     *
+     * @param changedFiles Changed source files
+     * @param sourceSets Source sets to scan for dependents
+     * @param indexFile Index of a previous scan to update, may be null to read every source file
+     * @return Source files to recompile
+     */
+    static Set<File> withDependents(Set<File> changedFiles, Collection<CloverSourceSet> sourceSets, File indexFile = null) {
+        Set<File> staleFiles = new LinkedHashSet<File>(changedFiles)
+        if (changedFiles.empty) {
+            return staleFiles
+        }
+
+        // Only the source files that are new or changed since the previous scan are read
+        Map<File, SourceEntry> previousEntries = indexFile != null ? readIndex(indexFile) : new HashMap<File, SourceEntry>()
+        Map<File, SourceEntry> entries = new LinkedHashMap<File, SourceEntry>()
+        for (File srcDir : CloverSourceSetUtils.getValidSourceDirs(sourceSets)) {
+            srcDir.eachFileRecurse(FileType.FILES) { File file ->
+                if (!isSourceFile(file)) {
+                    return
+                }
+                SourceEntry entry = previousEntries.get(file)
+                if (entry == null || changedFiles.contains(file) || entry.length != file.length() || entry.lastModified != file.lastModified()) {
+                    entry = scan(file)
+                }
+                entries.put(file, entry)
+            }
+        }
+        if (indexFile != null) {
+            writeIndex(indexFile, entries)
+        }
+
+        Map<String, List<File>> referencingFiles = new HashMap<String, List<File>>()
+        entries.each { File file, SourceEntry entry ->
+            entry.names.each { String name ->
+                List<File> files = referencingFiles.get(name)
+                if (files == null) {
+                    files = []
+                    referencingFiles.put(name, files)
+                }
+                files << file
+            }
+        }
+
+        Deque<File> queue = new ArrayDeque<File>(changedFiles)
+        while (!queue.empty) {
+            File file = queue.poll()
+            Set<String> types = entries.get(file)?.types ?: ([getTypeName(file)] as Set<String>)
+            for (String type : types) {
+                for (File dependent : referencingFiles.get(type) ?: Collections.<File>emptyList()) {
+                    if (staleFiles.add(dependent)) {
+                        queue.add(dependent)
+                    }
+                }
+            }
+        }
+        staleFiles
+    }
+
+    private static SourceEntry scan(File file) {
+        String text = file.text
+        Set<String> names = new HashSet<String>()
+        Matcher matcher = IDENTIFIER.matcher(text)
+        while (matcher.find()) {
+            names << matcher.group()
+        }
+        new SourceEntry(file.length(), file.lastModified(), getDeclaredTypes(file, text), names)
+    }
+
+    /**
+     * Reads the index of a previous scan. A missing or unreadable index yields no entries, so every
+     * source file is read again.
+     *
+     * @param indexFile Index file
+     * @return Entries by source file
+     */
+    static Map<File, SourceEntry> readIndex(File indexFile) {
+        Map<File, SourceEntry> entries = new HashMap<File, SourceEntry>()
+        if (!indexFile.file) {
+            return entries
+        }
+        for (String line : indexFile.readLines(StandardCharsets.UTF_8.name())) {
+            String[] fields = line.split('\t', -1)
+            if (fields.length != 5 || !fields[1].isLong() || !fields[2].isLong()) {
+                return new HashMap<File, SourceEntry>()
+            }
+            entries.put(new File(fields[0]), new SourceEntry(fields[1].toLong(), fields[2].toLong(),
+                splitNames(fields[3], ','), splitNames(fields[4], ' ')))
+        }
+        entries
+    }
+
+    private static void writeIndex(File indexFile, Map<File, SourceEntry> entries) {
+        indexFile.parentFile.mkdirs()
+        indexFile.withWriter(StandardCharsets.UTF_8.name()) { Writer writer ->
+            entries.each { File file, SourceEntry entry ->
+                writer.write("${file.path}\t${entry.length}\t${entry.lastModified}\t${entry.types.join(',')}\t${entry.names.join(' ')}\n")
+            }
+        }
+    }
+
+    private static Set<String> splitNames(String names, String separator) {
+        names.empty ? new LinkedHashSet<String>() : new LinkedHashSet<String>(Arrays.asList(names.split(separator)))
+    }
+
+    /**
+     * Gets the names of the types declared in a source file, including secondary top-level types and
+     * nested types.
+     *
+     * @param sourceFile Source file
+     * @param text Content of the source file
+     * @return Type names
+     */
+    static Set<String> getDeclaredTypes(File sourceFile, String text) {
+        Set<String> types = new LinkedHashSet<String>()
+        types << getTypeName(sourceFile)
+        Matcher matcher = TYPE_DECLARATION.matcher(text)
+        while (matcher.find()) {
+            types << matcher.group(1)
+        }
+        types
+    }
+
+    /**
+     * Deletes the class files compiled from the given source files so the next compilation picks them up
+     * again. The class files are attributed to their source files by the source file name they record, so
+     * secondary top-level types are deleted as well. If a class file does not record its source file, the
+     * class files are matched by name, nested and anonymous classes follow the {@code Outer$Inner.class}
+     * naming scheme.
+     *
+     * @param sourceFiles Source files to invalidate
+     * @param sourceSets Source sets the files belong to
+     */
+    static void deleteClassFiles(Set<File> sourceFiles, Collection<CloverSourceSet> sourceSets) {
+        for (CloverSourceSet sourceSet : sourceSets) {
+            Map<String, List<File>> classFilesBySource = InstrumentCodeAction.getClassFilesBySource(sourceSet.instrumentedClassesDir)
+            for (File srcDir : CloverSourceSetUtils.getValidSourceDirs(sourceSet)) {
+                for (File sourceFile : sourceFiles) {
+                    String relativePath = getRelativePath(srcDir, sourceFile)
+                    if (relativePath == null) {
+                        continue
+                    }
+                    if (classFilesBySource != null) {
+                        classFilesBySource.get(relativePath.replace(File.separatorChar, '/' as char))?.each { File classFile ->
+                            classFile.delete()
+                        }
+                        continue
+                    }
+                    File packageDir = new File(sourceSet.instrumentedClassesDir, relativePath).parentFile
+                    String typeName = getTypeName(sourceFile)
+                    packageDir.listFiles()?.each { File classFile ->
+                        if (classFile.name == typeName + '.class' || classFile.name.startsWith(typeName + '$')) {
+                            classFile.delete()
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    static String getTypeName(File sourceFile) {
+        String name = sourceFile.name
+        int extension = name.lastIndexOf('.')
+        extension > 0 ? name.substring(0, extension) : name
+    }
+
+    static String getRelativePath(File dir, File file) {
+        String dirPath = dir.absolutePath + File.separator
+        String filePath = file.absolutePath
+        filePath.startsWith(dirPath) ? filePath.substring(dirPath.length()) : null
+    }
+
+    /**
+     * Size and modification time of a scanned source file with the types it declares and the names it mentions.
+     */
+    static final class SourceEntry {
+        final long length
+        final long lastModified
+        final Set<String> types
+        final Set<String> names
+
+        SourceEntry(long length, long lastModified, Set<String> types, Set<String> names) {
+            this.length = length
+            this.lastModified = lastModified
+            this.types = types
+            this.names = names
+        }
+    }
+}
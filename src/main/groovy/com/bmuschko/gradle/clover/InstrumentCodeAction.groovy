@@ -15,19 +15,33 @@
  */
 package com.bmuschko.gradle.clover
 
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+
 import javax.inject.Inject
 
 import org.gradle.api.Action
 import org.gradle.api.Task
 import org.gradle.api.file.FileCollection
+import org.gradle.api.file.FileType
 import org.gradle.api.internal.project.IsolatedAntBuilder
+import org.gradle.api.model.ObjectFactory
+import org.gradle.api.provider.Provider
 import org.gradle.api.tasks.Classpath
 import org.gradle.api.tasks.Input
 import org.gradle.api.tasks.Internal
 import org.gradle.api.tasks.Nested
 import org.gradle.api.tasks.Optional
+import org.gradle.api.tasks.util.PatternSet
+import org.gradle.work.ChangeType
+import org.gradle.work.FileChange
+import org.gradle.work.InputChanges
+import org.gradle.workers.WorkAction
+import org.gradle.workers.WorkQueue
+import org.gradle.workers.WorkerExecutor
 
 import com.bmuschko.gradle.clover.internal.AntResourceWorkaround
+import com.bmuschko.gradle.clover.internal.ClassFileSourceReader
 
 import groovy.transform.CompileDynamic
 import groovy.transform.CompileStatic
@@ -42,16 +56,21 @@ import groovy.util.logging.Slf4j
 class InstrumentCodeAction implements Action<Task> {
     @Input String initString
     @Input Boolean enabled
+    @Input Boolean incremental
+    @Input Boolean relocatable
     @Input Boolean compileGroovy
     @Classpath FileCollection cloverClasspath
+    @Internal Provider<CloverRuntimeService> cloverRuntime
     @Classpath FileCollection instrumentationClasspath
     @Classpath FileCollection groovyClasspath
     @Nested List<CloverSourceSet> sourceSets
     @Nested List<CloverSourceSet> testSourceSets
     @Internal File buildDir
+    @Internal File projectDir
     @Input @Optional String sourceCompatibility
     @Input @Optional String targetCompatibility
     @Input @Optional String executable
+    @Input boolean compilerDaemon
     @Input @Optional String encoding
     @Input @Optional List<String> includes
     @Input @Optional List<String> excludes
@@ -61,16 +80,29 @@ class InstrumentCodeAction implements Action<Task> {
     @Nested Set<CloverContextConvention> statementContexts
     @Nested Set<CloverContextConvention> methodContexts
     @Input boolean debug
-    @Internal int flushinterval
-    @Input @Optional String flushpolicy
+    @Input int flushinterval
+    @Input @Optional FlushPolicy flushpolicy
+    @Input InstrumentationLevel instrumentationLevel
+    @Input Map<String, InstrumentationLevel> packageInstrumentationLevels
     @Input @Optional String additionalArgs
     @Input @Optional Map additionalGroovycOpts
+    @Internal CloverEngine.Type engine
 
     @Inject
     IsolatedAntBuilder getAntBuilder() {
         throw new UnsupportedOperationException();
     }
 
+    @Inject
+    WorkerExecutor getWorkerExecutor() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Inject
+    ObjectFactory getObjects() {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     void execute(Task task) {
         instrumentCode(task)
@@ -86,68 +118,424 @@ class InstrumentCodeAction implements Action<Task> {
         true
     }
 
-    void instrumentCode(Task task) {
+    /**
+     * Instruments the code. With incremental instrumentation enabled only the changed source
+     * files and the files referencing them are re-instrumented and the existing Clover database
+     * is updated instead of being recreated.
+     * <p>
+     * Java source sets are instrumented one after another, as only a single instrumentation
+     * session may write to the Clover database at a time, and are then compiled in parallel
+     * using the Gradle worker API. Groovy source sets are instrumented while being compiled, so
+     * changes to projects with Groovy source sets always trigger a full instrumentation.
+     *
+     * @param task Task
+     * @param inputChanges Input changes, may be null for a full instrumentation
+     */
+    void instrumentCode(Task task, InputChanges inputChanges = null) {
+        Set<File> staleSourceFiles = getIncremental() ? findStaleSourceFiles(task, inputChanges) : null
+        if (staleSourceFiles != null && staleSourceFiles.empty) {
+            log.info 'No source changes found, skipping Clover instrumentation.'
+            return
+        }
+
         log.info 'Starting to instrument code using Clover.'
 
+        File instrumentedSourcesDir = new File(task.temporaryDir, 'sources')
+        instrumentedSourcesDir.deleteDir()
+        WorkQueue workQueue = useCompilerDaemon() ? getWorkerExecutor().processIsolation() : getWorkerExecutor().noIsolation()
+        List<File> compiledClassesDirs = []
+
         antBuilder.withClasspath(getClasspath().files).execute {
-            CloverUtils.injectCloverClasspath(ant.getBuilder(), getCloverClasspath().files)
-            CloverUtils.loadCloverlib(ant.getBuilder())
-
-            ant."clover-clean"(initString: "${getBuildDir()}/${getInitString()}")
-    
-            List<File> srcDirs = CloverSourceSetUtils.getValidSourceDirs(getSourceSets())
-            List<File> testSrcDirs = CloverSourceSetUtils.getValidSourceDirs(getTestSourceSets())
-    
-            ant.'clover-setup'(getCloverSetupAttributes()) {
-                srcDirs.each { srcDir ->
-                    ant.fileset(dir: srcDir) {
-                        getIncludes().each { include ->
-                            ant.include(name: include)
+            CloverUtils.loadCloverlib(ant.getBuilder(), getCloverRuntime())
+
+            if (getRelocatable()) {
+                // The relative init string is resolved against the project directory while instrumenting
+                ant.getBuilder().getProject().setBasedir(getProjectDir().absolutePath)
+            }
+
+            if (staleSourceFiles == null) {
+                ant."clover-clean"(initString: "${getBuildDir()}/${getInitString()}")
+                if (getIncremental()) {
+                    deleteInstrumentedClasses()
+                }
+            } else {
+                log.info "Re-instrumenting ${staleSourceFiles.size()} changed or dependent source files."
+                IncrementalInstrumentation.deleteClassFiles(staleSourceFiles, getAllSourceSets())
+            }
+
+            List<File> nonTestClasses = getSourceSets().collect { it.classesDir }
+            getAllSourceSets().findAll { !it.groovy }.eachWithIndex { CloverSourceSet sourceSet, int index ->
+                boolean test = getTestSourceSets().contains(sourceSet)
+                File sourcesDir = new File(instrumentedSourcesDir, String.valueOf(index))
+                List<String> sourceFiles = instrumentJavaSourceSet(ant, sourceSet, sourcesDir,
+                    test ? getTestIncludes() : getIncludes(), test ? getTestExcludes() : getExcludes(), staleSourceFiles)
+
+                if (!sourceFiles.empty) {
+                    // Test classes are compiled against the original classes of the main source sets
+                    // so they don't need to wait for the instrumented main classes. The original classes
+                    // of the source set itself provide the classes of sources excluded from instrumentation.
+                    FileCollection classpath = sourceSet.compileClasspath + getObjects().fileCollection().from(sourceSet.classesDir)
+                    submitCompileJava(workQueue, sourcesDir, sourceFiles, sourceSet.instrumentedClassesDir,
+                        test ? classpath + getObjects().fileCollection().from(nonTestClasses) : classpath)
+                    compiledClassesDirs << sourceSet.instrumentedClassesDir
+                }
+            }
+
+            List<File> srcDirs = CloverSourceSetUtils.getValidSourceDirs(getSourceSets().findAll { it.groovy })
+            List<File> testSrcDirs = CloverSourceSetUtils.getValidSourceDirs(getTestSourceSets().findAll { it.groovy })
+
+            if (!srcDirs.empty || !testSrcDirs.empty) {
+                ant.'clover-setup'(getCloverSetupAttributes()) {
+                    srcDirs.each { srcDir ->
+                        ant.fileset(dir: srcDir) {
+                            getIncludes().each { include ->
+                                ant.include(name: include)
+                            }
+
+                            getExcludes().each { exclude ->
+                                ant.exclude(name: exclude)
+                            }
                         }
-    
-                        getExcludes().each { exclude ->
-                            ant.exclude(name: exclude)
+                    }
+
+                    testSrcDirs.each { testSrcDir ->
+                        ant.fileset(dir: testSrcDir) {
+                            getTestIncludes().each { include ->
+                                ant.include(name: include)
+                            }
+
+                            getTestExcludes().each { exclude ->
+                                ant.exclude(name: exclude)
+                            }
                         }
                     }
+
+                    addContexts(ant)
                 }
-    
-                testSrcDirs.each { testSrcDir ->
-                    ant.fileset(dir: testSrcDir) {
-                        getTestIncludes().each { include ->
-                            ant.include(name: include)
-                        }
-    
-                        getTestExcludes().each { exclude ->
-                            ant.exclude(name: exclude)
+
+                // Compile instrumented classes
+                compileClasses(ant)
+            }
+        }
+
+        workQueue.await()
+        compiledClassesDirs.each { addMarkerFile(it) }
+
+        log.info 'Finished instrumenting code using Clover.'
+    }
+
+    /**
+     * Writes an instrumented copy of the Java source files of the given source set. Java source files
+     * excluded from the instrumentation are not compiled again, their class files are linked from the
+     * original classes directory. If the original class files cannot be attributed to their source files,
+     * the excluded source files are copied unchanged and compiled with the instrumented ones.
+     *
+     * @param ant Ant builder
+     * @param sourceSet Source set
+     * @param sourcesDir Directory for the instrumented sources
+     * @param includes Include patterns for the instrumentation
+     * @param excludes Exclude patterns for the instrumentation
+     * @param staleSourceFiles Source files to instrument or null to instrument all source files
+     * @return Paths of the source files to compile relative to the instrumented sources directory
+     */
+    private List<String> instrumentJavaSourceSet(def ant, CloverSourceSet sourceSet, File sourcesDir, List<String> includes,
+                                                 List<String> excludes, Set<File> staleSourceFiles) {
+        List<String> sourceFiles = []
+        Map<String, List<File>> originalClassFiles = null
+        boolean originalClassFilesIndexed = false
+        int reusedClassFiles = 0
+
+        for (File srcDir : CloverSourceSetUtils.getValidSourceDirs(sourceSet)) {
+            Set<File> javaFiles = findJavaFiles(srcDir, ['**/*.java'], [])
+            Set<File> instrumentedFiles = findJavaFiles(srcDir, includes ?: ['**/*.java'], excludes ?: [])
+            if (staleSourceFiles != null) {
+                javaFiles.retainAll(staleSourceFiles)
+                instrumentedFiles.retainAll(staleSourceFiles)
+            }
+
+            // Files of packages with an instrumentation level of their own are instrumented separately
+            Map<InstrumentationLevel, List<String>> packageFiles = [:]
+            List<String> sourceSetFiles = []
+            instrumentedFiles.each { File file ->
+                String relativePath = getRelativePath(srcDir, file)
+                InstrumentationLevel packageLevel = getPackageInstrumentationLevel(getPackageInstrumentationLevels(), relativePath)
+                if (packageLevel == null) {
+                    sourceSetFiles << relativePath
+                } else {
+                    packageFiles.get(packageLevel, []) << relativePath
+                }
+            }
+
+            if (!sourceSetFiles.empty) {
+                instrumentJavaFiles(ant, srcDir, sourcesDir, sourceSet.instrumentationLevel ?: getInstrumentationLevel(), sourceSetFiles)
+            }
+
+            packageFiles.each { InstrumentationLevel level, List<String> relativePaths ->
+                instrumentJavaFiles(ant, srcDir, sourcesDir, level, relativePaths)
+            }
+
+            for (File javaFile : javaFiles) {
+                String relativePath = getRelativePath(srcDir, javaFile)
+                if (!instrumentedFiles.contains(javaFile)) {
+                    if (!originalClassFilesIndexed) {
+                        originalClassFiles = getClassFilesBySource(sourceSet.classesDir)
+                        originalClassFilesIndexed = true
+                    }
+                    if (originalClassFiles != null) {
+                        for (File classFile : originalClassFiles.get(relativePath) ?: []) {
+                            linkClassFile(classFile, new File(sourceSet.instrumentedClassesDir, getRelativePath(sourceSet.classesDir, classFile)))
+                            reusedClassFiles++
                         }
+                        continue
                     }
+
+                    File target = new File(sourcesDir, relativePath)
+                    target.parentFile.mkdirs()
+                    Files.copy(javaFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING)
                 }
-    
-                // Apply statement and method coverage contexts
-                getStatementContexts().each {
-                    ant.statementContext(name: it.name, regexp: it.regexp)
+                sourceFiles << relativePath
+            }
+        }
+
+        if (reusedClassFiles > 0) {
+            log.info "Reused ${reusedClassFiles} original class files of sources excluded from instrumentation in ${sourceSet.instrumentedClassesDir}."
+        }
+        sourceFiles
+    }
+
+    /**
+     * Instruments Java source files of a source directory with the configured engine.
+     *
+     * @param ant Ant builder
+     * @param srcDir Source directory
+     * @param sourcesDir Directory for the instrumented sources
+     * @param level Instrumentation level
+     * @param relativePaths Paths of the files to instrument relative to the source directory
+     */
+    private void instrumentJavaFiles(def ant, File srcDir, File sourcesDir, InstrumentationLevel level, List<String> relativePaths) {
+        CloverEngine engine = new AntCloverEngine(ant)
+        if (getEngine() == CloverEngine.Type.api) {
+            engine = new ApiCloverEngine(getCloverClasspath().files, engine)
+        }
+        engine.instrument(getCloverSetupAttributes() + [instrumentationLevel: level.name()], srcDir, sourcesDir, relativePaths,
+            getStatementContextAttributes(), getMethodContextAttributes())
+    }
+
+    /**
+     * Gets the instrumentation level configured for the package of a source file. The level of the
+     * most specific package containing the file applies.
+     *
+     * @param packageLevels Instrumentation level by package name, applying to subpackages as well
+     * @param relativePath Source file path relative to its source directory
+     * @return Instrumentation level or null if none is configured for the package
+     */
+    @CompileStatic
+    static InstrumentationLevel getPackageInstrumentationLevel(Map<String, InstrumentationLevel> packageLevels, String relativePath) {
+        if (!packageLevels) {
+            return null
+        }
+        int fileNameStart = relativePath.lastIndexOf('/')
+        String packageName = fileNameStart < 0 ? '' : relativePath.substring(0, fileNameStart).replace('/', '.')
+        String match = null
+        packageLevels.keySet().each { String candidate ->
+            if ((packageName == candidate || packageName.startsWith(candidate + '.')) && (match == null || candidate.length() > match.length())) {
+                match = candidate
+            }
+        }
+        match == null ? null : packageLevels.get(match)
+    }
+
+    /**
+     * Indexes the class files of a classes directory by the path of the source file they were compiled
+     * from, relative to its source directory.
+     *
+     * @param classesDir Classes directory
+     * @return Class files by source path or null if a class file does not record its source file
+     */
+    @CompileStatic
+    static Map<String, List<File>> getClassFilesBySource(File classesDir) {
+        if (classesDir == null || !classesDir.directory) {
+            return null
+        }
+
+        Map<String, List<File>> classFiles = new HashMap<String, List<File>>()
+        boolean complete = true
+        classesDir.eachFileRecurse(groovy.io.FileType.FILES) { File file ->
+            if (!complete || !file.name.endsWith('.class')) {
+                return
+            }
+            String sourceFileName = ClassFileSourceReader.getSourceFileName(file)
+            if (sourceFileName == null) {
+                complete = false
+                return
+            }
+            // Classes of the default package are directly in the classes directory
+            String sourcePath = file.parentFile.absolutePath == classesDir.absolutePath ? sourceFileName :
+                "${getRelativePath(classesDir, file.parentFile)}/${sourceFileName}".toString()
+            List<File> files = classFiles.get(sourcePath)
+            if (files == null) {
+                files = []
+                classFiles.put(sourcePath, files)
+            }
+            files << file
+        }
+        complete ? classFiles : null
+    }
+
+    /**
+     * Hard links an original class file into the instrumented classes directory, or copies it if the
+     * file system does not support links. Gradle deletes the class files of recompiled sources before
+     * compiling them, so the original classes are never rewritten through the link.
+     */
+    @CompileStatic
+    private static void linkClassFile(File classFile, File target) {
+        target.parentFile.mkdirs()
+        Files.deleteIfExists(target.toPath())
+        try {
+            Files.createLink(target.toPath(), classFile.toPath())
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(classFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING)
+        }
+    }
+
+    @CompileStatic
+    private Set<File> findJavaFiles(File srcDir, List<String> includes, List<String> excludes) {
+        PatternSet patterns = new PatternSet().include(includes).exclude(excludes)
+        new LinkedHashSet<File>(getObjects().fileTree().from(srcDir).matching(patterns).files.findAll { File file ->
+            file.name.endsWith('.java')
+        })
+    }
+
+    @CompileStatic
+    private static String getRelativePath(File dir, File file) {
+        IncrementalInstrumentation.getRelativePath(dir, file).replace(File.separatorChar, '/' as char)
+    }
+
+    /**
+     * Applies the statement and method coverage contexts to the current Clover task.
+     *
+     * @param ant Ant builder
+     */
+    private void addContexts(def ant) {
+        getStatementContextAttributes().each {
+            ant.statementContext(it)
+        }
+
+        getMethodContextAttributes().each {
+            ant.methodContext(it)
+        }
+    }
+
+    private List<Map<String, Object>> getStatementContextAttributes() {
+        getStatementContexts().collect {
+            [ name: it.name, regexp: it.regexp ] as Map<String, Object>
+        }
+    }
+
+    private List<Map<String, Object>> getMethodContextAttributes() {
+        getMethodContexts().collect {
+            Map<String, Object> args = [ name: it.name, regexp: it.regexp ]
+            // Add optional method metrics if provided
+            if (it.maxComplexity != null)
+                args.maxComplexity = it.maxComplexity
+            if (it.maxStatements != null)
+                args.maxStatements = it.maxStatements
+            if (it.maxAggregatedComplexity != null)
+                args.maxAggregatedComplexity = it.maxAggregatedComplexity
+            if (it.maxAggregatedStatements != null)
+                args.maxAggregatedStatements = it.maxAggregatedStatements
+            args
+        }
+    }
+
+    /**
+     * Checks if the instrumented Java sources are compiled in a worker daemon. A custom javac
+     * executable is only supported by the Ant javac task.
+     *
+     * @return Flag
+     */
+    @CompileStatic
+    private boolean useCompilerDaemon() {
+        getCompilerDaemon() && !getExecutable()
+    }
+
+    /**
+     * Submits the compilation of instrumented Java source files to the worker queue.
+     *
+     * @param workQueue Work queue
+     * @param sourcesDir Instrumented sources directory
+     * @param sourceFiles Source files relative to the sources directory
+     * @param destDir Destination directory
+     * @param classpath Classpath
+     */
+    @CompileStatic
+    private void submitCompileJava(WorkQueue workQueue, File sourcesDir, List<String> sourceFiles, File destDir, FileCollection classpath) {
+        Class<? extends WorkAction<CompileInstrumentedSourcesAction.Parameters>> compileAction =
+            useCompilerDaemon() ? JavaToolsCompileAction : CompileInstrumentedSourcesAction
+        workQueue.submit(compileAction) { CompileInstrumentedSourcesAction.Parameters parameters ->
+            parameters.sourceDir.set(sourcesDir)
+            parameters.includes.set(sourceFiles)
+            parameters.destinationDir.set(destDir)
+            parameters.classpath.from(classpath)
+            parameters.sourceCompatibility.set(getSourceCompatibility())
+            parameters.targetCompatibility.set(getTargetCompatibility())
+            parameters.encoding.set(getEncoding())
+            parameters.executable.set(getExecutable())
+            parameters.additionalArgs.set(getAdditionalArgs())
+            parameters.debug.set(getDebug())
+        }
+    }
+
+    /**
+     * Gets the source files which have to be re-instrumented.
+     *
+     * @param task Task
+     * @param inputChanges Input changes
+     * @return Changed source files and their dependents or null if a full instrumentation is required
+     */
+    @CompileStatic
+    private Set<File> findStaleSourceFiles(Task task, InputChanges inputChanges) {
+        // Any change to a non-incremental input like the classpath or the Clover settings
+        // makes Gradle report a non-incremental execution
+        if (inputChanges == null || !inputChanges.incremental || !getCloverDatabaseFile().exists()) {
+            return null
+        }
+
+        Set<File> changedFiles = new LinkedHashSet<File>()
+        for (CloverSourceSet sourceSet : getAllSourceSets()) {
+            for (FileChange change : inputChanges.getFileChanges(sourceSet.sourceFiles)) {
+                if (change.fileType != FileType.FILE || !IncrementalInstrumentation.isSourceFile(change.file)) {
+                    continue
                 }
-    
-                getMethodContexts().each {
-                    def args = [ name: it.name, regexp: it.regexp ]
-                    // Add optional method metrics if provided
-                    if (it.maxComplexity != null)
-                        args.maxComplexity = it.maxComplexity
-                    if (it.maxStatements != null)
-                        args.maxStatements = it.maxStatements
-                    if (it.maxAggregatedComplexity != null)
-                        args.maxAggregatedComplexity = it.maxAggregatedComplexity
-                    if (it.maxAggregatedStatements != null)
-                        args.maxAggregatedStatements = it.maxAggregatedStatements
-                    ant.methodContext(args)
+                if (change.changeType == ChangeType.REMOVED) {
+                    log.info "Source file ${change.file} was removed, instrumenting all source files."
+                    return null
                 }
+                changedFiles << change.file
             }
-    
-            // Compile instrumented classes
-            compileClasses(ant)
         }
 
-        log.info 'Finished instrumenting code using Clover.'
+        // clover-setup instruments every Groovy source while groovyc compiles the whole source set,
+        // which cannot be narrowed to the stale files
+        if (!changedFiles.empty && !CloverSourceSetUtils.getValidSourceDirs(getAllSourceSets().findAll { it.groovy }).empty) {
+            task.logger.lifecycle "Groovy sources cannot be instrumented incrementally, running a full Clover instrumentation for ${task.path}."
+            return null
+        }
+
+        IncrementalInstrumentation.withDependents(changedFiles, getAllSourceSets(), new File(task.temporaryDir, 'source-index.txt'))
+    }
+
+    @CompileStatic
+    private List<CloverSourceSet> getAllSourceSets() {
+        getSourceSets() + getTestSourceSets()
+    }
+
+    @CompileStatic
+    private void deleteInstrumentedClasses() {
+        for (CloverSourceSet sourceSet : getAllSourceSets()) {
+            sourceSet.instrumentedClassesDir.deleteDir()
+            sourceSet.instrumentedClassesDir.mkdirs()
+        }
     }
 
     @Internal
@@ -159,6 +547,13 @@ class InstrumentCodeAction implements Action<Task> {
     Map getCloverSetupAttributes() {
         def attributes = [initString: "${cloverDatabaseFile}"]
 
+        if (getRelocatable()) {
+            // Keeps absolute paths out of the instrumented classes. At runtime the Test task
+            // passes the actual location with the clover.initstring system property.
+            attributes.initString = getProjectDir().toPath().relativize(cloverDatabaseFile.toPath()).toString()
+            attributes.relative = 'true'
+        }
+
         if (getSourceCompatibility()) {
             attributes['source'] = getSourceCompatibility()
         }
@@ -171,8 +566,9 @@ class InstrumentCodeAction implements Action<Task> {
             attributes['instrumentLambda'] = getInstrumentLambda()
         }
 
+        attributes.instrumentationLevel = getInstrumentationLevel().name()
         attributes.flushinterval = getFlushinterval()
-        attributes.flushpolicy = getFlushpolicy()
+        attributes.flushpolicy = getFlushpolicy()?.cloverPolicy
 
         attributes.encoding = getEncoding()
 
@@ -180,7 +576,7 @@ class InstrumentCodeAction implements Action<Task> {
     }
 
     /**
-     * Compiles Java classes. If project has Groovy plugin applied run the joint compiler.
+     * Compiles the Groovy source sets using the joint compiler. Java source sets are compiled by workers.
      *
      * @param ant Ant builder
      */
@@ -220,24 +616,22 @@ class InstrumentCodeAction implements Action<Task> {
     }
 
     /**
-     * Compiles main source files.
+     * Compiles main Groovy source files.
      *
      * @param ant Ant builder
      */
     @CompileStatic
     private void compileSrcFiles(def ant) {
         for(CloverSourceSet sourceSet : getSourceSets()) {
-            String classpath = getCompileClasspath(sourceSet)
             if (sourceSet.groovy) {
+                String classpath = getCompileClasspath(sourceSet)
                 compileGroovyAndJava(ant, CloverSourceSetUtils.getValidSourceDirs(sourceSet), sourceSet.instrumentedClassesDir, classpath)
-            } else {
-                compileJava(ant, CloverSourceSetUtils.getValidSourceDirs(sourceSet), sourceSet.instrumentedClassesDir, classpath)
             }
         }
     }
 
     /**
-     * Compiles test source files.
+     * Compiles test Groovy source files.
      *
      * @param ant Ant builder
      */
@@ -245,11 +639,9 @@ class InstrumentCodeAction implements Action<Task> {
     private void compileTestSrcFiles(def ant) {
         def nonTestClasses = getSourceSets().collect { it.classesDir }
         for(CloverSourceSet sourceSet : getTestSourceSets()) {
-            String classpath = addClassesDirToClasspath(getCompileClasspath(sourceSet), nonTestClasses)
             if (sourceSet.groovy) {
+                String classpath = addClassesDirToClasspath(getCompileClasspath(sourceSet), nonTestClasses)
                 compileGroovyAndJava(ant, CloverSourceSetUtils.getValidSourceDirs(sourceSet), sourceSet.instrumentedClassesDir, classpath)
-            } else {
-                compileJava(ant, CloverSourceSetUtils.getValidSourceDirs(sourceSet), sourceSet.instrumentedClassesDir, classpath)
             }
         }
     }
@@ -301,37 +693,13 @@ class InstrumentCodeAction implements Action<Task> {
         }
     }
 
-    /**
-     * Compiles given Java source files to destination directory.
-     *
-     * @param ant Ant builder
-     * @param srcDirs Source directories
-     * @param destDir Destination directory
-     * @param classpath Classpath
-     */
-    private void compileJava(def ant, Collection<File> srcDirs, File destDir, String classpath) {
-        if (srcDirs.size() > 0) {
-            String args = getAdditionalArgs()
-            ant.javac(destdir: destDir.canonicalPath, source: getSourceCompatibility(), target: getTargetCompatibility(),
-                  includeantruntime: false, classpath: classpath, encoding: getEncoding(), executable: getExecutable(), debug: getDebug()) {
-                srcDirs.each { srcDir ->
-                    src(path: srcDir)
-                }
-                if (args != null && args.length() > 0) {
-                    compilerarg(line: args)
-                }
-            }
-            addMarkerFile(destDir)
-        }
-    }
-
     /**
      * Adds a marker file to the destination directory.
      */
     @CompileStatic
     private void addMarkerFile(File destDir) {
         File marker = new File(destDir, "clover.instrumented")
-        marker << "the classes in this directory are instrumented with clover"
+        marker.text = "the classes in this directory are instrumented with clover"
     }
 
 }
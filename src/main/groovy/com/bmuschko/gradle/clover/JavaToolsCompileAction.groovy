@@ -0,0 +1,152 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bmuschko.gradle.clover
+
+import java.nio.charset.Charset
+
+import javax.tools.Diagnostic
+import javax.tools.DiagnosticCollector
+import javax.tools.JavaCompiler
+import javax.tools.JavaFileObject
+import javax.tools.StandardJavaFileManager
+import javax.tools.StandardLocation
+import javax.tools.ToolProvider
+
+import org.gradle.api.GradleException
+import org.gradle.workers.WorkAction
+
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+
+/**
+ * Compiles the Clover instrumented Java sources of a single source set with the
+ * {@link JavaCompiler} of the running JDK. The action is meant to run in a worker daemon
+ * which outlives a single build, so the file managers, and with them the opened classpath
+ * jars, are kept between compilations using the same classpath.
+ */
+@Slf4j
+@CompileStatic
+abstract class JavaToolsCompileAction implements WorkAction<CompileInstrumentedSourcesAction.Parameters> {
+    private static final int MAX_FILE_MANAGERS = 8
+
+    // Keyed by classpath signature, file managers in use are removed until the compilation finished
+    private static final Map<String, StandardJavaFileManager> FILE_MANAGERS = new LinkedHashMap<String, StandardJavaFileManager>(16, 0.75f, true)
+
+    @Override
+    void execute() {
+        CompileInstrumentedSourcesAction.Parameters parameters = getParameters()
+        JavaCompiler compiler = ToolProvider.systemJavaCompiler
+        if (compiler == null) {
+            throw new GradleException('No Java compiler available, Clover instrumented sources need to be compiled with a JDK.')
+        }
+
+        File sourceDir = parameters.sourceDir.get().asFile
+        File destDir = parameters.destinationDir.get().asFile
+        List<File> classpath = new ArrayList<File>(parameters.classpath.files)
+        String encoding = parameters.encoding.getOrNull()
+        String key = getClasspathSignature(classpath) + '|' + encoding
+        // Previously compiled classes are needed for incremental compilation
+        classpath << destDir
+
+        StandardJavaFileManager fileManager = acquire(compiler, key, encoding)
+        boolean reusable = false
+        try {
+            fileManager.setLocation(StandardLocation.CLASS_PATH, classpath)
+            fileManager.setLocation(StandardLocation.SOURCE_PATH, [sourceDir])
+            fileManager.setLocation(StandardLocation.CLASS_OUTPUT, [destDir])
+
+            List<File> sourceFiles = parameters.includes.get().collect { String include -> new File(sourceDir, include) }
+            Iterable<? extends JavaFileObject> compilationUnits = fileManager.getJavaFileObjectsFromFiles(sourceFiles)
+            DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>()
+            StringWriter output = new StringWriter()
+
+            log.info "Compiling ${sourceFiles.size()} instrumented source files to ${destDir}."
+            boolean success = compiler.getTask(output, fileManager, diagnostics, getOptions(parameters), null, compilationUnits).call()
+
+            if (output.toString()) {
+                log.info output.toString()
+            }
+            diagnostics.diagnostics.each { Diagnostic<? extends JavaFileObject> diagnostic ->
+                if (diagnostic.kind == Diagnostic.Kind.ERROR) {
+                    log.error diagnostic.toString()
+                } else {
+                    log.warn diagnostic.toString()
+                }
+            }
+            if (!success) {
+                throw new GradleException("Compilation of Clover instrumented sources to ${destDir} failed; see the compiler error output for details.")
+            }
+            reusable = true
+        } finally {
+            release(key, fileManager, reusable)
+        }
+    }
+
+    private static List<String> getOptions(CompileInstrumentedSourcesAction.Parameters parameters) {
+        List<String> options = []
+        if (parameters.encoding.present) {
+            options.addAll(['-encoding', parameters.encoding.get()])
+        }
+        if (parameters.sourceCompatibility.present) {
+            options.addAll(['-source', parameters.sourceCompatibility.get()])
+        }
+        if (parameters.targetCompatibility.present) {
+            options.addAll(['-target', parameters.targetCompatibility.get()])
+        }
+        // Same as the Ant javac task
+        options << (parameters.debug.get() ? '-g' : '-g:none')
+        String args = parameters.additionalArgs.getOrNull()
+        if (args != null && args.trim().length() > 0) {
+            options.addAll(args.trim().split('\\s+') as List<String>)
+        }
+        options
+    }
+
+    /**
+     * Gets a signature of the classpath which changes whenever one of its entries is modified, so
+     * a file manager is never reused with outdated jars.
+     */
+    static String getClasspathSignature(List<File> classpath) {
+        classpath.collect { File file -> "${file.absolutePath}:${file.length()}:${file.lastModified()}" }.join(File.pathSeparator)
+    }
+
+    private static StandardJavaFileManager acquire(JavaCompiler compiler, String key, String encoding) {
+        synchronized (FILE_MANAGERS) {
+            StandardJavaFileManager fileManager = FILE_MANAGERS.remove(key)
+            if (fileManager != null) {
+                return fileManager
+            }
+        }
+        compiler.getStandardFileManager(null, null, encoding ? Charset.forName(encoding) : null)
+    }
+
+    private static void release(String key, StandardJavaFileManager fileManager, boolean reusable) {
+        List<StandardJavaFileManager> evicted = []
+        synchronized (FILE_MANAGERS) {
+            if (reusable && !FILE_MANAGERS.containsKey(key)) {
+                FILE_MANAGERS.put(key, fileManager)
+            } else {
+                evicted << fileManager
+            }
+            Iterator<StandardJavaFileManager> iterator = FILE_MANAGERS.values().iterator()
+            while (FILE_MANAGERS.size() > MAX_FILE_MANAGERS && iterator.hasNext()) {
+                evicted << iterator.next()
+                iterator.remove()
+            }
+        }
+        evicted.each { StandardJavaFileManager manager -> manager.close() }
+    }
+}
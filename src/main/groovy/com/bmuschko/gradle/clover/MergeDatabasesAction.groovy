@@ -0,0 +1,121 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bmuschko.gradle.clover
+
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+import java.util.regex.Pattern
+
+import javax.inject.Inject
+
+import org.gradle.api.file.ConfigurableFileCollection
+import org.gradle.api.file.RegularFileProperty
+import org.gradle.api.internal.project.IsolatedAntBuilder
+import org.gradle.api.provider.Property
+import org.gradle.workers.WorkAction
+import org.gradle.workers.WorkParameters
+
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+
+/**
+ * Merges a group of Clover databases into a single database.
+ */
+@Slf4j
+abstract class MergeDatabasesAction implements WorkAction<Parameters> {
+
+    interface Parameters extends WorkParameters {
+        ConfigurableFileCollection getCloverClasspath()
+        ConfigurableFileCollection getDatabases()
+        RegularFileProperty getDestination()
+        Property<CloverEngine.Type> getEngine()
+    }
+
+    /**
+     * Suffix Clover appends to the registry name for recording files. Registries of other databases in the same
+     * directory, e.g. the instrumentation registries {@code clover.db-test} next to {@code clover.db}, do not match.
+     */
+    private static final String RECORDING_FILE_SUFFIX = '[0-9a-z]+_-?[0-9a-z]+(\\.s)?'
+
+    @Inject
+    abstract IsolatedAntBuilder getAntBuilder()
+
+    @Override
+    void execute() {
+        Parameters parameters = getParameters()
+        Set<File> cloverClasspath = parameters.cloverClasspath.files
+        File destination = parameters.destination.get().asFile
+        destination.parentFile.mkdirs()
+        // Merge into a temporary file first so a failed merge never leaves a partial database behind
+        File merged = new File(destination.parentFile, "${destination.name}.merging")
+        deleteDatabaseFiles(merged)
+
+        CloverEngine engine = new AntCloverEngine(antBuilder, cloverClasspath)
+        if (parameters.engine.getOrElse(CloverEngine.Type.ant) == CloverEngine.Type.api) {
+            engine = new ApiCloverEngine(cloverClasspath, engine)
+        }
+        List<File> databases = new ArrayList<File>(parameters.databases.files)
+        long start = System.currentTimeMillis()
+        engine.merge(databases, merged)
+        log.info "Merged ${databases.size()} Clover databases into ${destination} with the ${engine} engine in ${System.currentTimeMillis() - start} ms."
+
+        moveDatabase(merged, destination)
+    }
+
+    /**
+     * Moves a database and its recording files, replacing the files of the previous database. Other files
+     * in the directory are left alone.
+     * The registry is moved last, so it is only in place once all the other files are.
+     *
+     * @param source Database to move
+     * @param destination Destination database
+     */
+    @CompileStatic
+    static void moveDatabase(File source, File destination) {
+        deleteDatabaseFiles(destination)
+        getDatabaseFiles(source).each { File file ->
+            if (file != source) {
+                File target = new File(destination.parentFile, destination.name + file.name.substring(source.name.length()))
+                Files.move(file.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING)
+            }
+        }
+        Files.move(source.toPath(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING)
+    }
+
+    /**
+     * Deletes the registry of a database and its recording files.
+     *
+     * @param database Database
+     */
+    @CompileStatic
+    private static void deleteDatabaseFiles(File database) {
+        getDatabaseFiles(database)*.delete()
+    }
+
+    /**
+     * Gets the registry of a database and its recording files.
+     *
+     * @param database Database
+     * @return Files
+     */
+    @CompileStatic
+    static List<File> getDatabaseFiles(File database) {
+        Pattern recordingFile = Pattern.compile(Pattern.quote(database.name) + RECORDING_FILE_SUFFIX)
+        database.parentFile.listFiles({ File file ->
+            file.file && (file.name == database.name || recordingFile.matcher(file.name).matches())
+        } as FileFilter)?.toList() ?: []
+    }
+}
@@ -15,6 +15,11 @@
  */
 package com.bmuschko.gradle.clover
 
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+import java.security.MessageDigest
+
 import javax.inject.Inject
 
 import org.gradle.api.Action
@@ -22,13 +27,19 @@ import org.gradle.api.Task
 import org.gradle.api.file.FileCollection
 import org.gradle.api.file.FileTreeElement
 import org.gradle.api.internal.project.IsolatedAntBuilder
+import org.gradle.api.provider.Provider
 import org.gradle.api.specs.Spec
 import org.gradle.api.tasks.Classpath
 import org.gradle.api.tasks.Input
 import org.gradle.api.tasks.InputFile
 import org.gradle.api.tasks.Internal
 import org.gradle.api.tasks.Optional
+import org.gradle.api.tasks.testing.Test
+
+import com.bmuschko.gradle.clover.internal.ClassFileSourceReader
 
+import groovy.io.FileType
+import groovy.transform.CompileStatic
 import groovy.util.logging.Slf4j
 
 /**
@@ -44,8 +55,10 @@ class OptimizeTestSetAction implements Action<Task>, Spec<FileTreeElement> {
     @Input String initString
     @Input boolean optimizeTests
     @Classpath FileCollection cloverClasspath
+    @Internal Provider<CloverRuntimeService> cloverRuntime
     @Optional @InputFile File snapshotFile
     @Internal File buildDir
+    @Internal File cloverDatabaseFile
     @Input List<CloverSourceSet> testSourceSets
     
     @Internal Set<String> includes
@@ -55,39 +68,198 @@ class OptimizeTestSetAction implements Action<Task>, Spec<FileTreeElement> {
         initIncludes(task)
     }
 
+    @Inject
+    IsolatedAntBuilder getAntBuilder() {
+        throw new UnsupportedOperationException();
+    }
+
     void initIncludes(Task task) {
         if (getOptimizeTests() && getSnapshotFile() != null && getSnapshotFile().exists()) {
             log.info 'Optimizing test set.'
 
-            // This cannot use the isolated classloader and I am giving up on it.
-            AntBuilder ant = new AntBuilder()
-            ant.taskdef(resource: 'cloverlib.xml', classpath: getCloverClasspath().asPath)
-            ant.property(name: 'clover.initstring', value: "${getBuildDir()}/${getInitString()}")
+            File cloverDatabaseFile = getCloverDatabaseFile()
             List<File> testSrcDirs = CloverSourceSetUtils.getValidSourceDirs(getTestSourceSets())
-            def testset = ant."clover-optimized-testset"(snapshotFile: getSnapshotFile(), debug: true) {
-                testSrcDirs.each { testSrcDir ->
-                    ant.fileset(dir: testSrcDir)
+            // Without the registry a change of the instrumented sources cannot be detected, so nothing is cached
+            String key = cloverDatabaseFile.exists() ? getOptimizedTestSetKey(cloverDatabaseFile, testSrcDirs) : null
+            List<String> testSet = key != null ? readOptimizedTestSet(key) : null
+
+            if (testSet == null) {
+                testSet = []
+                antBuilder.withClasspath(getCloverClasspath().files).execute {
+                    CloverUtils.loadCloverlib(ant.getBuilder(), getCloverRuntime())
+
+                    ant.property(name: 'clover.initstring', value: cloverDatabaseFile.path)
+                    def testset = ant."clover-optimized-testset"(snapshotFile: getSnapshotFile(), debug: true) {
+                        testSrcDirs.each { testSrcDir ->
+                            ant.fileset(dir: testSrcDir)
+                        }
+                    }
+                    testset.each { fileResource ->
+                        testSet << (fileResource.name as String)
+                    }
+                }
+                if (key != null) {
+                    writeOptimizedTestSet(key, testSet)
                 }
+            } else {
+                log.info 'Sources and snapshot unchanged, reusing the previously optimized test set.'
             }
 
-            // The Clover optimizer operates in terms of source files (*.java, *.groovy), but Gradle's test config operates in terms of classes (*.class)
-            includes = testset.collect { fileResource ->
-                fileResource.name.replace('.java', '.class').replace('.groovy', '.class')
-            }
+            // The Clover optimizer operates in terms of source files (*.java, *.groovy), but Gradle's test config operates in terms of classes (*.class).
+            // The compiled test classes record the source file they originate from, which maps classes to sources independent of their names.
+            Set<String> selectedSources = new HashSet<String>(testSet.collect { String sourcePath -> getSourceKey(sourcePath) })
+            Set<String> knownSources = getSourceKeys(testSrcDirs)
+            Map<String, String> classIndex = getClassIndex((task as Test).testClassesDirs.files)
+            includes = selectTestClasses(classIndex, knownSources, selectedSources)
 
             log.info 'Finished optimizing test set.'
         }
     }
 
+    /**
+     * The optimized test set is stored next to the snapshot it was computed from.
+     */
+    @Internal
+    File getOptimizedTestSetFile() {
+        new File(getSnapshotFile().path + '.testset')
+    }
+
+    /**
+     * Gets the key of the optimized test set. The test set only changes if the snapshot, the
+     * instrumented sources, reflected by the Clover database, or the test sources change.
+     */
+    @CompileStatic
+    private String getOptimizedTestSetKey(File cloverDatabaseFile, List<File> testSrcDirs) {
+        MessageDigest digest = MessageDigest.getInstance('SHA-1')
+        getSnapshotFile().eachByte(8192) { byte[] buffer, int length -> digest.update(buffer, 0, length) }
+        List<File> files = [cloverDatabaseFile]
+        testSrcDirs.each { File testSrcDir ->
+            testSrcDir.eachFileRecurse(FileType.FILES) { File file -> files << file }
+        }
+        files.each { File file ->
+            digest.update("${file.absolutePath}:${file.length()}:${file.lastModified()}\n".getBytes(StandardCharsets.UTF_8))
+        }
+        new BigInteger(1, digest.digest()).toString(16).padLeft(40, '0')
+    }
+
+    @CompileStatic
+    private List<String> readOptimizedTestSet(String key) {
+        File testSetFile = getOptimizedTestSetFile()
+        if (!testSetFile.exists()) {
+            return null
+        }
+        List<String> lines = testSetFile.readLines('UTF-8')
+        lines && lines[0] == key ? lines.subList(1, lines.size()) : null
+    }
+
+    @CompileStatic
+    private void writeOptimizedTestSet(String key, List<String> testSet) {
+        File testSetFile = getOptimizedTestSetFile()
+        File tempFile = new File(testSetFile.path + '.tmp')
+        tempFile.setText(([key] + testSet).join('\n'), 'UTF-8')
+        Files.move(tempFile.toPath(), testSetFile.toPath(), StandardCopyOption.REPLACE_EXISTING)
+    }
+
     @Override
     boolean isSatisfiedBy(FileTreeElement element) {
         if (includes != null && !element.directory) {
-            def match = includes.find {
-                element.file.path.endsWith(it)
-            }
-            return match != null
+            String key = getClassKey(element.relativePath.pathString)
+            return key != null && includes.contains(key)
         } else {
             return true
         }
     }
+
+    /**
+     * Gets the index keys of all source files in the given directories.
+     *
+     * @param srcDirs Source directories
+     * @return Keys
+     */
+    @CompileStatic
+    static Set<String> getSourceKeys(Collection<File> srcDirs) {
+        Set<String> keys = new HashSet<String>()
+        srcDirs.each { File srcDir ->
+            srcDir.eachFileRecurse(FileType.FILES) { File file ->
+                if (IncrementalInstrumentation.isSourceFile(file)) {
+                    keys << getSourceKey(IncrementalInstrumentation.getRelativePath(srcDir, file))
+                }
+            }
+        }
+        keys
+    }
+
+    /**
+     * Indexes the compiled test classes by the source file they were compiled from. Classes which
+     * do not record their source file are assumed to follow the Java naming convention.
+     *
+     * @param classesDirs Test classes directories
+     * @return Source key by class key
+     */
+    @CompileStatic
+    static Map<String, String> getClassIndex(Collection<File> classesDirs) {
+        Map<String, String> index = new HashMap<String, String>()
+        classesDirs.findAll { File dir -> dir.directory }.each { File classesDir ->
+            classesDir.eachFileRecurse(FileType.FILES) { File file ->
+                String classKey = getClassKey(IncrementalInstrumentation.getRelativePath(classesDir, file).replace('\\', '/'))
+                if (classKey == null || index.containsKey(classKey)) {
+                    return
+                }
+                String sourceFileName = ClassFileSourceReader.getSourceFileName(file)
+                int packageEnd = classKey.lastIndexOf('/')
+                index[classKey] = sourceFileName == null ? classKey : getSourceKey(classKey.substring(0, packageEnd + 1) + sourceFileName)
+            }
+        }
+        index
+    }
+
+    /**
+     * Selects the test classes to run. Classes compiled from a source Clover knows about run only if
+     * Clover selected their source, all other classes (e.g. Kotlin or generated tests) always run.
+     *
+     * @param classIndex Source key by class key
+     * @param knownSources Keys of the sources Clover optimized
+     * @param selectedSources Keys of the sources Clover selected
+     * @return Keys of the classes to run
+     */
+    @CompileStatic
+    static Set<String> selectTestClasses(Map<String, String> classIndex, Set<String> knownSources, Set<String> selectedSources) {
+        Set<String> classes = new HashSet<String>()
+        classIndex.each { String classKey, String sourceKey ->
+            if (!knownSources.contains(sourceKey) || selectedSources.contains(sourceKey)) {
+                classes << classKey
+            }
+        }
+        classes
+    }
+
+    /**
+     * Gets the index key of a test source file, its path relative to the source directory without extension.
+     *
+     * @param sourcePath Relative source file path
+     * @return Key
+     */
+    @CompileStatic
+    static String getSourceKey(String sourcePath) {
+        String path = sourcePath.replace('\\', '/')
+        int extension = path.lastIndexOf('.')
+        extension > path.lastIndexOf('/') ? path.substring(0, extension) : path
+    }
+
+    /**
+     * Gets the index key of a class file. Nested classes map to the key of their top-level class
+     * as they are compiled from the same source file.
+     *
+     * @param classPath Relative class file path
+     * @return Key or null if the path is not a class file
+     */
+    @CompileStatic
+    static String getClassKey(String classPath) {
+        if (!classPath.endsWith('.class')) {
+            return null
+        }
+        String path = classPath.substring(0, classPath.length() - '.class'.length())
+        int nested = path.indexOf('$', path.lastIndexOf('/') + 1)
+        nested > 0 ? path.substring(0, nested) : path
+    }
 }
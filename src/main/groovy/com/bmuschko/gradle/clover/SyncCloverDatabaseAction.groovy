@@ -0,0 +1,104 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bmuschko.gradle.clover
+
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+
+import org.gradle.api.Action
+import org.gradle.api.Task
+import org.gradle.api.tasks.InputFile
+import org.gradle.api.tasks.Internal
+
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+
+/**
+ * Prepares the recording files directory of a test task: previous recordings are removed and the
+ * Clover database is made available next to them. The database is only read while the tests run,
+ * so it is hard linked where the file system supports it. Otherwise it is copied, unless the
+ * directory already holds an identical copy.
+ */
+@Slf4j
+class SyncCloverDatabaseAction implements Action<Task> {
+    @InputFile File cloverDatabaseFile
+    @Internal File recordingFilesDir
+
+    @Override
+    void execute(Task task) {
+        sync(getCloverDatabaseFile(), getRecordingFilesDir())
+    }
+
+    @CompileStatic
+    static void sync(File cloverDatabaseFile, File recordingFilesDir) {
+        File target = new File(recordingFilesDir, cloverDatabaseFile.name)
+        recordingFilesDir.mkdirs()
+        recordingFilesDir.listFiles()?.each { File file ->
+            if (file != target) {
+                file.directory ? file.deleteDir() : file.delete()
+            }
+        }
+
+        if (target.exists()) {
+            if (Files.isSameFile(cloverDatabaseFile.toPath(), target.toPath())) {
+                log.debug "Clover database ${target} is linked already."
+                return
+            }
+            if (isIdentical(cloverDatabaseFile, target)) {
+                log.debug "Clover database ${target} is up-to-date."
+                return
+            }
+            target.delete()
+        }
+
+        try {
+            Files.createLink(target.toPath(), cloverDatabaseFile.toPath())
+            log.debug "Linked Clover database ${cloverDatabaseFile} to ${target}."
+        } catch (IOException | UnsupportedOperationException e) {
+            log.debug "Copying Clover database ${cloverDatabaseFile} to ${target}, it cannot be linked: ${e.message}"
+            Files.copy(cloverDatabaseFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES)
+        }
+    }
+
+    @CompileStatic
+    static boolean isIdentical(File file, File other) {
+        if (file.length() != other.length()) {
+            return false
+        }
+        byte[] buffer = new byte[65536]
+        byte[] otherBuffer = new byte[65536]
+        new BufferedInputStream(new FileInputStream(file)).withCloseable { InputStream input ->
+            new BufferedInputStream(new FileInputStream(other)).withCloseable { InputStream otherInput ->
+                int read
+                while ((read = readFully(input, buffer)) > 0) {
+                    if (readFully(otherInput, otherBuffer) != read || !Arrays.equals(buffer, otherBuffer)) {
+                        return false
+                    }
+                }
+                return true
+            }
+        }
+    }
+
+    private static int readFully(InputStream input, byte[] buffer) {
+        int total = 0
+        int read
+        while (total < buffer.length && (read = input.read(buffer, total, buffer.length - total)) > 0) {
+            total += read
+        }
+        total
+    }
+}
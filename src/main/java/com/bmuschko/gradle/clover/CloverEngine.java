@@ -0,0 +1,70 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bmuschko.gradle.clover;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs Clover operations. The Ant engine runs the Clover Ant tasks, the API engine calls the
+ * command line entry points of OpenClover directly and falls back to the Ant engine for options the
+ * entry points do not support or if they are not available in the Clover version used.
+ * <p>
+ * Snapshots and test optimization always run with the Ant tasks, OpenClover has no entry point for
+ * them besides {@code clover-snapshot} and {@code clover-optimized-testset}.
+ */
+public interface CloverEngine {
+
+    /**
+     * Supported engine types.
+     */
+    enum Type {
+        ant,
+        api
+    }
+
+    /**
+     * Merges Clover databases including their coverage recordings.
+     *
+     * @param databases Clover databases
+     * @param destination Merged Clover database
+     */
+    void merge(List<File> databases, File destination);
+
+    /**
+     * Instruments Java source files.
+     *
+     * @param attributes Attributes of the {@code clover-instr} Ant task, without the source and destination directory
+     * @param srcDir Source directory
+     * @param destDir Directory for the instrumented sources
+     * @param files Paths of the source files to instrument relative to the source directory
+     * @param statementContexts Attributes of the statement contexts
+     * @param methodContexts Attributes of the method contexts
+     */
+    void instrument(Map<String, Object> attributes, File srcDir, File destDir, List<String> files,
+                    List<Map<String, Object>> statementContexts, List<Map<String, Object>> methodContexts);
+
+    /**
+     * Writes a report of the current coverage.
+     *
+     * @param database Clover database
+     * @param type Report type
+     * @param outfile Report file or directory
+     * @param attributes Attributes of the {@code current} report element, without the output file
+     */
+    void report(File database, ReportType type, File outfile, Map<String, Object> attributes);
+}
@@ -26,10 +26,25 @@ import java.util.Collection;
 public enum FlushPolicy {
     directed,
     interval,
-    threaded;
+    threaded,
+    /**
+     * Threaded flushing with an interval derived from the coverage recorded by previous test runs.
+     *
+     * @see AdaptiveFlushPolicy
+     */
+    adaptive;
+
+    /**
+     * Gets the flushpolicy passed to Clover.
+     *
+     * @return Clover flushpolicy
+     */
+    public String getCloverPolicy() {
+        return this == adaptive ? threaded.name() : name();
+    }
 
     public static Collection<String> getAllPolicies() {
-        ArrayList<String> policies = new ArrayList<String>(3);
+        ArrayList<String> policies = new ArrayList<String>(4);
         for (FlushPolicy value : values()) {
             policies.add(value.name());
         }
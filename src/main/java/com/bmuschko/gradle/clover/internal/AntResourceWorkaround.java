@@ -16,6 +16,8 @@
 package com.bmuschko.gradle.clover.internal;
 
 import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.gradle.api.internal.DynamicObjectAware;
 import org.gradle.internal.IoActions;
@@ -37,30 +39,49 @@ public class AntResourceWorkaround {
         this.antlibClassLoader = Thread.currentThread().getContextClassLoader();
     }
 
-    @SuppressWarnings("resource")
+    public ClassLoader getAntlibClassLoader() {
+        return antlibClassLoader;
+    }
+
     public void taskdef(String resource) {
+        define(parse(resource));
+    }
+
+    public void define(Definitions definitions) {
+        try {
+            for (Map.Entry<String, String> taskdef : definitions.taskdefs.entrySet()) {
+                addTaskDefinition(taskdef.getKey(), taskdef.getValue());
+            }
+            for (Map.Entry<String, String> typedef : definitions.typedefs.entrySet()) {
+                addDataTypeDefinition(typedef.getKey(), typedef.getValue());
+            }
+        } catch (Exception ex) {
+            throw UncheckedException.throwAsUncheckedException(ex);
+        }
+    }
+
+    @SuppressWarnings("resource")
+    public Definitions parse(String resource) {
         InputStream instr = antlibClassLoader.getResourceAsStream(resource);
         try {
             Node xml = new XmlParser().parse(instr);
+            Definitions definitions = new Definitions();
             for (Object taskdefObject : (NodeList) xml.get("taskdef")) {
                 Node taskdef = (Node) taskdefObject;
-                String name = (String) taskdef.get("@name");
-                String className = (String) taskdef.get("@classname");
-                addTaskDefinition(name, className);
+                definitions.taskdefs.put((String) taskdef.get("@name"), (String) taskdef.get("@classname"));
             }
             for (Object typedefObject : (NodeList) xml.get("typedef")) {
                 Node typedef = (Node) typedefObject;
-                String name = (String) typedef.get("@name");
-                String className = (String) typedef.get("@classname");
-                addDataTypeDefinition(name, className);
+                definitions.typedefs.put((String) typedef.get("@name"), (String) typedef.get("@classname"));
             }
+            return definitions;
         } catch (Exception ex) {
             throw UncheckedException.throwAsUncheckedException(ex);
         } finally {
             IoActions.closeQuietly(instr);
         }
     }
-    
+
     private void addTaskDefinition(String name, String className) throws ClassNotFoundException {
         DynamicObject project = asDynamicObject(builder.getProperty("project"));
         project.invokeMethod("addTaskDefinition", name, antlibClassLoader.loadClass(className));
@@ -80,4 +101,13 @@ public class AntResourceWorkaround {
             return new BeanDynamicObject(object);
         }
     }
+
+    /**
+     * Task and type class names of an antlib, keyed by their names. Only class names are kept, so the
+     * definitions do not keep the classloader they were parsed from alive.
+     */
+    public static final class Definitions {
+        private final Map<String, String> taskdefs = new LinkedHashMap<String, String>();
+        private final Map<String, String> typedefs = new LinkedHashMap<String, String>();
+    }
 }
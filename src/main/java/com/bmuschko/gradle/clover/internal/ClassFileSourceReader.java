@@ -0,0 +1,136 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bmuschko.gradle.clover.internal;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Reads the {@code SourceFile} attribute of a class file, the name of the source file the class
+ * was compiled from. Only the constant pool and the attribute tables are parsed, the code of the
+ * class is skipped.
+ */
+public final class ClassFileSourceReader {
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private ClassFileSourceReader() {
+    }
+
+    /**
+     * Gets the source file name of the given class file.
+     *
+     * @param classFile Class file
+     * @return Source file name without directory, or null if the class file does not record it or cannot be read
+     */
+    public static String getSourceFileName(File classFile) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(classFile)))) {
+            return readSourceFileName(in);
+        } catch (IOException | RuntimeException ex) {
+            return null;
+        }
+    }
+
+    private static String readSourceFileName(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            return null;
+        }
+        skipFully(in, 4); // minor and major version
+
+        int constantPoolCount = in.readUnsignedShort();
+        String[] utf8 = new String[constantPoolCount];
+        for (int i = 1; i < constantPoolCount; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1: // Utf8
+                    utf8[i] = in.readUTF();
+                    break;
+                case 7: // Class
+                case 8: // String
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    skipFully(in, 2);
+                    break;
+                case 15: // MethodHandle
+                    skipFully(in, 3);
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    skipFully(in, 4);
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    skipFully(in, 8);
+                    i++; // takes two entries
+                    break;
+                default:
+                    return null;
+            }
+        }
+
+        skipFully(in, 6); // access flags, this class, super class
+        skipFully(in, 2 * in.readUnsignedShort()); // interfaces
+        skipMembers(in); // fields
+        skipMembers(in); // methods
+
+        int attributesCount = in.readUnsignedShort();
+        for (int i = 0; i < attributesCount; i++) {
+            int nameIndex = in.readUnsignedShort();
+            int length = in.readInt();
+            if ("SourceFile".equals(utf8[nameIndex])) {
+                return utf8[in.readUnsignedShort()];
+            }
+            skipFully(in, length);
+        }
+        return null;
+    }
+
+    private static void skipMembers(DataInputStream in) throws IOException {
+        int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            skipFully(in, 6); // access flags, name, descriptor
+            skipAttributes(in);
+        }
+    }
+
+    private static void skipAttributes(DataInputStream in) throws IOException {
+        int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            skipFully(in, 2);
+            skipFully(in, in.readInt());
+        }
+    }
+
+    private static void skipFully(DataInputStream in, int length) throws IOException {
+        int remaining = length;
+        while (remaining > 0) {
+            int skipped = in.skipBytes(remaining);
+            if (skipped <= 0) {
+                throw new IOException("Unexpected end of class file");
+            }
+            remaining -= skipped;
+        }
+    }
+}
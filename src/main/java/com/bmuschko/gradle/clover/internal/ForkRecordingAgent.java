@@ -0,0 +1,98 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bmuschko.gradle.clover.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.instrument.Instrumentation;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+/**
+ * Java agent which moves the Clover coverage recordings of a test JVM into a directory of its own.
+ * The agent runs before any instrumented class is loaded, links the Clover database given as agent
+ * argument into a {@code fork-<pid>} directory next to it and points {@code clover.initstring} there,
+ * so parallel test forks never flush into the same directory.
+ * <p>
+ * The agent is loaded into the test JVMs on its own, so it only depends on the JDK.
+ */
+public final class ForkRecordingAgent {
+    public static final String FORK_DIR_PREFIX = "fork-";
+
+    private ForkRecordingAgent() {
+    }
+
+    public static void premain(String cloverDatabasePath, Instrumentation instrumentation) throws IOException {
+        File cloverDatabaseFile = new File(cloverDatabasePath);
+        File forkDir = new File(cloverDatabaseFile.getParentFile(), FORK_DIR_PREFIX + getProcessId());
+        File forkDatabaseFile = new File(forkDir, cloverDatabaseFile.getName());
+        if (!forkDir.isDirectory() && !forkDir.mkdirs()) {
+            throw new IOException("Unable to create Clover recording directory " + forkDir);
+        }
+        if (!forkDatabaseFile.exists()) {
+            try {
+                Files.createLink(forkDatabaseFile.toPath(), cloverDatabaseFile.toPath());
+            } catch (IOException | UnsupportedOperationException e) {
+                Files.copy(cloverDatabaseFile.toPath(), forkDatabaseFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        System.setProperty("clover.initstring", forkDatabaseFile.getAbsolutePath());
+    }
+
+    private static String getProcessId() {
+        // <pid>@<host> on all common JVMs
+        String name = ManagementFactory.getRuntimeMXBean().getName();
+        int separator = name.indexOf('@');
+        return separator > 0 ? name.substring(0, separator) : Long.toString(System.nanoTime());
+    }
+
+    /**
+     * Writes the agent jar.
+     *
+     * @param jarFile Jar file
+     */
+    public static void writeJar(File jarFile) throws IOException {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(new Attributes.Name("Premain-Class"), ForkRecordingAgent.class.getName());
+
+        String classEntry = ForkRecordingAgent.class.getName().replace('.', '/') + ".class";
+        File tempFile = new File(jarFile.getPath() + ".tmp");
+        jarFile.getParentFile().mkdirs();
+        try (JarOutputStream jar = new JarOutputStream(Files.newOutputStream(tempFile.toPath()), manifest);
+             InputStream classFile = ForkRecordingAgent.class.getClassLoader().getResourceAsStream(classEntry)) {
+            jar.putNextEntry(new JarEntry(classEntry));
+            copy(classFile, jar);
+            jar.closeEntry();
+        }
+        Files.move(tempFile.toPath(), jarFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void copy(InputStream input, OutputStream output) throws IOException {
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = input.read(buffer)) > 0) {
+            output.write(buffer, 0, read);
+        }
+    }
+}
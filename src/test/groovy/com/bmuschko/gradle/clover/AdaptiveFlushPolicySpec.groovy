@@ -0,0 +1,80 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bmuschko.gradle.clover
+
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import com.bmuschko.gradle.clover.AdaptiveFlushPolicy.Statistics
+
+class AdaptiveFlushPolicySpec extends Specification {
+
+    @Rule
+    TemporaryFolder tempDir = new TemporaryFolder()
+
+    @Unroll
+    def "Flush interval for a run of #duration ms recording #recordedBytes bytes in #forks forks is #interval ms"() {
+        expect: "the interval follows the recorded data"
+        AdaptiveFlushPolicy.getInterval(1000, [new Statistics(duration, recordedBytes, forks)]) == interval
+
+        where:
+        duration | recordedBytes    | forks | interval
+        600000   | 0                | 1     | 60000
+        600000   | 10 * 1024 * 1024 | 1     | 60000
+        600000   | 100 * 1024 * 1024| 1     | 5000
+        600000   | 100 * 1024 * 1024| 4     | 20000
+        20000    | 0                | 1     | 2000
+        5000     | 100 * 1024 * 1024| 1     | 1000
+    }
+
+    def "Configured interval is used without previous runs"() {
+        expect: "no adaption"
+        AdaptiveFlushPolicy.getInterval(1000, [null]) == 1000
+    }
+
+    def "Statistics are stored between builds"() {
+        given: "a statistics file"
+        File file = new File(tempDir.root, 'flush/clover-flush.properties')
+
+        when: "the statistics are written and read again"
+        new Statistics(1000, 2048, 2).write(file)
+        Statistics statistics = Statistics.read(file)
+
+        then: "all values are kept"
+        statistics.duration == 1000
+        statistics.recordedBytes == 2048
+        statistics.forks == 2
+        statistics.bytesPerSecond == 1024
+    }
+
+    @Unroll
+    def "Interval #interval ms is rounded to #rounded ms"() {
+        expect: "1, 2 or 5 times a power of ten"
+        AdaptiveFlushPolicy.round(interval) == rounded
+
+        where:
+        interval | rounded
+        1        | 1
+        999      | 500
+        1000     | 1000
+        1999     | 1000
+        4900     | 2000
+        5100     | 5000
+        23999    | 20000
+    }
+}
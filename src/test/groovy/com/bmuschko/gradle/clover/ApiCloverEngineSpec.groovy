@@ -0,0 +1,130 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bmuschko.gradle.clover
+
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+class ApiCloverEngineSpec extends Specification {
+
+    @Rule
+    TemporaryFolder tempDir = new TemporaryFolder()
+
+    def "Merging falls back if Clover is not on the classpath"() {
+        given: "an engine without Clover classes"
+        CloverEngine fallback = Mock(CloverEngine)
+        File library = tempDir.newFolder('lib')
+        ApiCloverEngine engine = new ApiCloverEngine([library] as Set, fallback)
+        List<File> databases = [tempDir.newFile('a.db'), tempDir.newFile('b.db')]
+        File destination = new File(tempDir.root, 'merged.db')
+
+        when: "the databases are merged"
+        engine.merge(databases, destination)
+
+        then: "the fallback engine merges them"
+        1 * fallback.merge(databases, destination)
+    }
+
+    def "Instrumentation falls back if Clover is not on the classpath"() {
+        given: "an engine without Clover classes"
+        CloverEngine fallback = Mock(CloverEngine)
+        ApiCloverEngine engine = new ApiCloverEngine([tempDir.newFolder('lib')] as Set, fallback)
+        File srcDir = tempDir.newFolder('src')
+        File destDir = new File(tempDir.root, 'instrumented')
+        Map<String, Object> attributes = [initString: 'clover.db']
+
+        when: "the sources are instrumented"
+        engine.instrument(attributes, srcDir, destDir, ['Foo.java'], [], [])
+
+        then: "the fallback engine instruments them"
+        1 * fallback.instrument(attributes, srcDir, destDir, ['Foo.java'], [], [])
+    }
+
+    def "Instrumentation attributes map to CloverInstr options"() {
+        given: "a source directory"
+        File srcDir = new File('/src')
+        File destDir = new File('/instrumented')
+
+        when: "the arguments are created"
+        List<String> args = ApiCloverEngine.getInstrumentArguments([initString: '/clover.db', instrumentationLevel: 'method', flushpolicy: null],
+            srcDir, destDir, ['a/Foo.java'], [[name: 'log', regexp: 'LOG.*']], [[name: 'getters', regexp: 'get.*']])
+
+        then: "every attribute is passed as an option"
+        args == ['-s', srcDir.absolutePath, '-d', destDir.absolutePath, '-i', '/clover.db', '--instrlevel', 'method',
+                 '-sc', 'log=LOG.*', '-mc', 'getters=get.*', new File(srcDir, 'a/Foo.java').absolutePath]
+    }
+
+    def "Instrumentation options without CloverInstr equivalent are not supported"() {
+        expect: "no arguments"
+        ApiCloverEngine.getInstrumentArguments(attributes, new File('/src'), new File('/instrumented'), ['Foo.java'], [], methodContexts) == null
+
+        where:
+        attributes                                 | methodContexts
+        [initString: 'clover.db', relative: 'true'] | []
+        [initString: 'clover.db', enabled: 'false'] | []
+        [initString: 'clover.db']                  | [[name: 'complex', regexp: '.*', maxComplexity: 10]]
+    }
+
+    def "Report attributes map to reporter options"() {
+        given: "a database"
+        File database = tempDir.newFile('clover.db')
+        File outfile = new File(tempDir.root, 'html')
+
+        expect: "the report options"
+        ApiCloverEngine.getReportArguments(database, type, outfile, [title: 'project', alwaysReport: true, includeFailedTestCoverage: false, numThreads: 2]) ==
+            ['-i', database.canonicalPath, '-o', outfile.absolutePath] + options
+
+        where:
+        type            | options
+        ReportType.HTML | ['-t', 'project', '-a', '-tc', '2']
+        ReportType.XML  | ['-l', '-t', 'project', '-a']
+    }
+
+    def "Reports without reporter equivalent are not supported"() {
+        expect: "no arguments"
+        ApiCloverEngine.getReportArguments(new File('clover.db'), type, new File('report'), attributes) == null
+
+        where:
+        type            | attributes
+        ReportType.PDF  | [title: 'project']
+        ReportType.JSON | [title: 'project']
+        ReportType.HTML | [title: 'project', timeout: '10 minutes']
+    }
+
+    def "Class loaders of replaced Clover classpaths are closed once unused"() {
+        given: "a class loader cache"
+        ApiCloverEngine.ClassLoaderCache cache = new ApiCloverEngine.ClassLoaderCache()
+        List<File> first = [tempDir.newFolder('first')]
+        List<File> second = [tempDir.newFolder('second')]
+
+        when: "a class loader is in use while another classpath is requested"
+        ApiCloverEngine.ClassLoaderCache.Entry used = cache.acquire(first)
+        ApiCloverEngine.ClassLoaderCache.Entry replacing = cache.acquire(second)
+
+        then: "the replaced class loader stays open"
+        !used.closed
+
+        when: "the replaced class loader is released"
+        cache.release(used)
+        cache.release(replacing)
+
+        then: "it is closed and the current class loader is kept"
+        used.closed
+        !replacing.closed
+        cache.acquire(second).is(replacing)
+    }
+}
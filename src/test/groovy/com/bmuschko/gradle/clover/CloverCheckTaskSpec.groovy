@@ -0,0 +1,77 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bmuschko.gradle.clover
+
+import org.apache.tools.ant.Project
+import org.apache.tools.ant.Task
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+class CloverCheckTaskSpec extends Specification {
+
+    @Rule
+    TemporaryFolder tempDir = new TemporaryFolder()
+
+    def "Classes below their coverage target are reported"() {
+        given: "an XML report"
+        File xmlReport = tempDir.newFile('clover.xml')
+        xmlReport.text = '''<coverage>
+            <project>
+                <package name="com.acme.core">
+                    <file name="Car.java">
+                        <class name="Car"><metrics elements="10" coveredelements="5"/></class>
+                        <class name="Engine"><metrics elements="10" coveredelements="9"/></class>
+                    </file>
+                </package>
+                <package name="com.acme.util">
+                    <file name="Strings.java">
+                        <class name="Strings"><metrics elements="4" coveredelements="1"/></class>
+                        <class name="Empty"><metrics elements="0" coveredelements="0"/></class>
+                    </file>
+                </package>
+            </project>
+        </coverage>'''
+
+        when: "the class targets are checked"
+        List<String> violations = CloverCheckTask.findClassViolations(CloverCheckTask.readClassMetrics(xmlReport), ['com\\.acme\\.core\\..*': '80%'])
+
+        then: "only the matching class below its target is reported"
+        violations == ['class com.acme.core.Car: 50.0% < 80%']
+    }
+
+    def "Warnings and errors of the checked task are recorded"() {
+        given: "an Ant project with a message recorder"
+        Project project = new Project()
+        List<String> messages = []
+        project.addBuildListener(CloverCheckTask.createMessageRecorder(project, 'clover-check', messages))
+        Task check = new Task() {}
+        check.project = project
+        check.taskName = 'clover-check'
+        Task other = new Task() {}
+        other.project = project
+        other.taskName = 'clover-report'
+
+        when: "messages are logged"
+        check.log('Coverage check FAILED', Project.MSG_ERR)
+        check.log('Total coverage of 53.8% did not meet target of 80%', Project.MSG_WARN)
+        check.log('Loading coverage database', Project.MSG_INFO)
+        other.log('Unrelated warning', Project.MSG_WARN)
+
+        then: "only the warnings and errors of the checked task are recorded"
+        messages == ['Coverage check FAILED', 'Total coverage of 53.8% did not meet target of 80%']
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bmuschko.gradle.clover
+
+import org.gradle.testfixtures.ProjectBuilder
+import org.gradle.workers.WorkQueue
+import org.gradle.workers.WorkerExecutor
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+class CloverDatabaseMergerSpec extends Specification {
+
+    @Rule
+    TemporaryFolder tempDir = new TemporaryFolder()
+
+    def "Fingerprint of merged databases depends on their order and content"() {
+        expect: "stable fingerprints for the same inputs"
+        CloverDatabaseMerger.getFingerprint(['a', 'b']) == CloverDatabaseMerger.getFingerprint(['a', 'b'])
+        CloverDatabaseMerger.getFingerprint(['a', 'b']) != CloverDatabaseMerger.getFingerprint(['b', 'a'])
+        CloverDatabaseMerger.getFingerprint(['ab', '']) != CloverDatabaseMerger.getFingerprint(['a', 'b'])
+        CloverDatabaseMerger.getFingerprint(['a']).length() == 40
+    }
+
+    def "Fingerprint of a database covers its recording files"() {
+        given: "a database with recordings of a fork"
+        File recordingFilesDir = tempDir.newFolder('test')
+        File database = new File(recordingFilesDir, 'clover.db')
+        database.text = 'registry'
+        File forkDir = new File(recordingFilesDir, 'fork-42')
+        forkDir.mkdirs()
+        new File(forkDir, 'clover.db').text = 'registry'
+        File recording = new File(forkDir, 'clover.dbabc_def')
+        recording.text = '1234'
+        String fingerprint = CloverDatabaseMerger.getDatabaseFingerprint(database)
+
+        when: "the recordings are replaced by a new test run"
+        recording.delete()
+        new File(recordingFilesDir, 'clover.dbabc_xyz').text = '1234'
+
+        then: "the fingerprint changes although the registry did not"
+        CloverDatabaseMerger.getDatabaseFingerprint(database) != fingerprint
+    }
+
+    def "Merged database is moved with the files next to it"() {
+        given: "a merged database and a previous result"
+        File dir = tempDir.newFolder('merge')
+        new File(dir, 'clover.db-all').text = 'old registry'
+        new File(dir, 'clover.db-allabc_def').text = 'old recording'
+        new File(dir, 'clover.db-all.merging').text = 'registry'
+        new File(dir, 'clover.db-all.merging1a2b_xyz').text = 'recording'
+
+        when: "the merged database is moved into place"
+        MergeDatabasesAction.moveDatabase(new File(dir, 'clover.db-all.merging'), new File(dir, 'clover.db-all'))
+
+        then: "only the new files are left"
+        dir.list().sort() as List == ['clover.db-all', 'clover.db-all1a2b_xyz']
+        new File(dir, 'clover.db-all').text == 'registry'
+    }
+
+    def "Databases next to the merged database are kept"() {
+        given: "a merged database next to the instrumentation registries"
+        File dir = tempDir.newFolder('merge')
+        new File(dir, 'clover.db').text = 'old registry'
+        new File(dir, 'clover.db1a2b_xyz').text = 'old recording'
+        new File(dir, 'clover.db-test').text = 'test registry'
+        new File(dir, 'clover.db-test1a2b_xyz').text = 'test recording'
+        new File(dir, 'clover.db-shared').text = 'shared registry'
+        new File(dir, 'clover.db.merging').text = 'registry'
+
+        when: "the merged database is moved into place"
+        MergeDatabasesAction.moveDatabase(new File(dir, 'clover.db.merging'), new File(dir, 'clover.db'))
+
+        then: "the other databases survive"
+        dir.list().sort() as List == ['clover.db', 'clover.db-shared', 'clover.db-test', 'clover.db-test1a2b_xyz']
+        new File(dir, 'clover.db').text == 'registry'
+        new File(dir, 'clover.db-test').text == 'test registry'
+    }
+
+    def "Merge is skipped if the merged databases did not change"() {
+        given: "a database and a merger"
+        File dir = tempDir.newFolder('databases')
+        File database = new File(dir, 'clover.db')
+        database.text = 'registry'
+        File destination = new File(tempDir.newFolder('merged'), 'clover.db')
+        WorkerExecutor workerExecutor = Mock(WorkerExecutor)
+        WorkQueue workQueue = Mock(WorkQueue)
+        CloverDatabaseMerger merger = new CloverDatabaseMerger(workerExecutor, ProjectBuilder.builder().build().files(), tempDir.newFolder('work'), CloverEngine.Type.ant)
+
+        when: "the database is merged"
+        merger.merge([database], destination)
+        destination.text = 'merged'
+
+        then: "the merge runs"
+        1 * workerExecutor.noIsolation() >> workQueue
+        1 * workQueue.submit(MergeDatabasesAction, _)
+
+        when: "the database is merged again"
+        merger.merge([database], destination)
+
+        then: "the merge is skipped"
+        0 * workerExecutor._
+
+        when: "a recording is added and the database is merged again"
+        new File(dir, 'clover.db1a2b_xyz').text = 'recording'
+        merger.merge([database], destination)
+
+        then: "the merge runs"
+        1 * workerExecutor.noIsolation() >> workQueue
+    }
+}
@@ -65,6 +65,21 @@ class CloverPluginConventionSpec extends Specification {
         e.message =~ /^Cannot convert string value 'bogus' to an enum value/
     }
 
+    def "Instrumentation level assignment conversion works"() {
+        given: "A new CloverPluginConvention instance"
+        def convention = project.objects.newInstance(CloverPluginConvention)
+
+        when: "configuration closure with instrumentation levels"
+        convention.clover {
+            instrumentationLevel = 'method'
+            packageInstrumentationLevels = ['com.example.core': 'statement']
+        }
+
+        then: "the levels are assigned correctly"
+        convention.instrumentationLevel == InstrumentationLevel.method
+        convention.packageInstrumentationLevels == ['com.example.core': InstrumentationLevel.statement]
+    }
+
     def "Historical report convention can be configured"() {
         given: "A new CloverPluginConvention instance"
         def convention = project.objects.newInstance(CloverPluginConvention)
@@ -168,4 +183,22 @@ class CloverPluginConventionSpec extends Specification {
         def e = thrown(InvalidUserDataException)
         e.message == "Unsupported column name 'expression' for Clover report"
     }
+
+    def "Test optimization with per fork recording is rejected"() {
+        given: "a Java project with test optimization and per fork recording"
+        project.pluginManager.apply('java')
+        project.pluginManager.apply(CloverPlugin)
+        project.clover {
+            optimizeTests = true
+            perForkRecording = true
+        }
+
+        when: "the project is evaluated"
+        project.evaluate()
+
+        then: "the combination is rejected"
+        def e = thrown(Exception)
+        e.cause instanceof InvalidUserDataException
+        e.cause.message.contains('perForkRecording')
+    }
 }
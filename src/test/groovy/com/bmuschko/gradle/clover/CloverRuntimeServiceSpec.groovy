@@ -0,0 +1,71 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bmuschko.gradle.clover
+
+import org.gradle.api.Project
+import org.gradle.testfixtures.ProjectBuilder
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+class CloverRuntimeServiceSpec extends Specification {
+
+    @Rule
+    TemporaryFolder tempDir = new TemporaryFolder()
+
+    def "Clover tasks share the runtime service"() {
+        given: "a project with the Clover plugin"
+        Project project = ProjectBuilder.builder().withProjectDir(tempDir.newFolder()).build()
+        project.pluginManager.apply('java')
+        project.pluginManager.apply(CloverPlugin)
+
+        when: "the project is evaluated"
+        project.evaluate()
+
+        then: "the instrumentation, report and check tasks use the same service"
+        CloverRuntimeService service = project.tasks.getByName(CloverPlugin.CHECK_TASK_NAME).cloverRuntime.get()
+        project.tasks.getByName(CloverPlugin.GENERATE_REPORT_TASK_NAME).cloverRuntime.get().is(service)
+        project.tasks.getByName('cloverInstrumentCodeForTest').instrumentCodeAction.cloverRuntime.get().is(service)
+    }
+
+    def "The Clover definitions are parsed once per classloader"() {
+        given: "an Ant builder whose classloader provides a cloverlib.xml"
+        Project project = ProjectBuilder.builder().withProjectDir(tempDir.newFolder()).build()
+        CloverRuntimeService service = CloverRuntimeService.register(project.gradle).get()
+        File antlibDir = tempDir.newFolder('antlib')
+        File cloverlib = new File(antlibDir, 'cloverlib.xml')
+        cloverlib.text = '<antlib><taskdef name="clover-setup" classname="java.lang.String"/><typedef name="clover-columns" classname="java.lang.Integer"/></antlib>'
+        List<String> definitions = []
+        def antProject = new Object() {
+            void addTaskDefinition(String name, Class type) { definitions << name }
+            void addDataTypeDefinition(String name, Class type) { definitions << name }
+        }
+        ClassLoader contextClassLoader = Thread.currentThread().contextClassLoader
+        Thread.currentThread().contextClassLoader = new URLClassLoader([antlibDir.toURI().toURL()] as URL[], contextClassLoader)
+
+        when: "the Clover tasks are loaded twice, the second time without the resource"
+        service.loadCloverlib([project: antProject])
+        cloverlib.delete()
+        service.loadCloverlib([project: antProject])
+
+        then: "both Ant projects got the definitions"
+        definitions == ['clover-setup', 'clover-columns', 'clover-setup', 'clover-columns']
+
+        cleanup:
+        Thread.currentThread().contextClassLoader = contextClassLoader
+        service?.close()
+    }
+}
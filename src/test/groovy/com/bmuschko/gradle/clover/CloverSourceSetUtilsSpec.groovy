@@ -0,0 +1,53 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bmuschko.gradle.clover
+
+import spock.lang.Specification
+
+class CloverSourceSetUtilsSpec extends Specification {
+
+    def "Stable name does not depend on the project location"() {
+        given: "the same source directories in two project directories"
+        File firstProjectDir = new File('/agent-1/project')
+        File secondProjectDir = new File('/agent-2/workspace/project')
+
+        when: "the names are computed"
+        String firstName = CloverSourceSetUtils.getStableName(firstProjectDir, [new File(firstProjectDir, 'src/gen/java'), new File(firstProjectDir, 'src/extra/java')])
+        String secondName = CloverSourceSetUtils.getStableName(secondProjectDir, [new File(secondProjectDir, 'src/extra/java'), new File(secondProjectDir, 'src/gen/java')])
+
+        then: "the names are the same"
+        firstName == secondName
+        firstName.startsWith('sourceSet-')
+    }
+
+    def "Stable names of different source directories differ"() {
+        given: "a project directory"
+        File projectDir = new File('/project')
+
+        expect: "different names for different source directories"
+        CloverSourceSetUtils.getStableName(projectDir, [new File(projectDir, 'src/gen/java')]) !=
+            CloverSourceSetUtils.getStableName(projectDir, [new File(projectDir, 'src/extra/java')])
+    }
+
+    def "Stable name is a SHA-1 digest of the source directories"() {
+        given: "a project directory"
+        File projectDir = new File('/project')
+
+        expect: "the digest of the relative source directory path"
+        CloverSourceSetUtils.getStableName(projectDir, [new File(projectDir, 'src/gen/java')]) ==
+            'sourceSet-' + 'src/gen/java'.digest('SHA-1')
+    }
+}
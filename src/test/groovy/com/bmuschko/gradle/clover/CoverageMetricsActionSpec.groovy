@@ -0,0 +1,67 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bmuschko.gradle.clover
+
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+class CoverageMetricsActionSpec extends Specification {
+
+    @Rule
+    TemporaryFolder tempDir = new TemporaryFolder()
+
+    def "Recordings of all forks are measured"() {
+        given: "a recording files directory with global and per-test recordings"
+        File recordingFilesDir = tempDir.newFolder('test')
+        File database = new File(recordingFilesDir, 'clover.db')
+        database.text = 'registry'
+        new File(recordingFilesDir, 'clover.dbabc_def').text = '1234'
+        new File(recordingFilesDir, 'clover.dbabc_def_ghi.s').text = '12'
+        File forkDir = new File(recordingFilesDir, 'fork-42')
+        forkDir.mkdirs()
+        new File(forkDir, 'clover.db').text = 'registry'
+        new File(forkDir, 'clover.dbabc_xyz').text = '123456'
+
+        when: "the metrics are computed against a baseline"
+        Map<String, Object> metrics = CoverageMetricsAction.getMetrics(':test', 3000,
+            CoverageMetricsAction.getRecordingFiles(database), 2000L)
+
+        then: "the databases are not counted"
+        metrics.task == ':test'
+        metrics.wallTime == 3000
+        metrics.recordingFiles == 3
+        metrics.recordingBytes == 12
+        metrics.globalRecordingFiles == 2
+        metrics.baselineWallTime == 2000
+        metrics.slowdown == 1.5d
+    }
+
+    def "No slowdown without baseline"() {
+        given: "a baseline of an earlier run"
+        File baselineFile = new File(tempDir.root, 'clover-baseline.properties')
+
+        expect: "no baseline before an uninstrumented run"
+        CoverageMetricsAction.readBaseline(baselineFile) == null
+        CoverageMetricsAction.getMetrics(':test', 3000, [], null).slowdown == null
+
+        when: "an uninstrumented run is recorded"
+        CoverageMetricsAction.writeBaseline(baselineFile, 2500)
+
+        then: "its duration is the baseline"
+        CoverageMetricsAction.readBaseline(baselineFile) == 2500L
+    }
+}
@@ -34,6 +34,13 @@ class FlushPolicySpec extends Specification {
         'directed' | FlushPolicy.directed
         'interval' | FlushPolicy.interval
         'threaded' | FlushPolicy.threaded
+        'adaptive' | FlushPolicy.adaptive
+    }
+
+    def "Adaptive flush policy is passed to Clover as threaded"() {
+        expect: "Clover only knows its own policies"
+        FlushPolicy.adaptive.cloverPolicy == 'threaded'
+        FlushPolicy.interval.cloverPolicy == 'interval'
     }
 
     def "Invalid flush policy String name fails to convert"() {
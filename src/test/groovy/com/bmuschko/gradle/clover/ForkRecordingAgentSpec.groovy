@@ -0,0 +1,62 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bmuschko.gradle.clover
+
+import java.util.jar.JarFile
+
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+import spock.util.environment.RestoreSystemProperties
+
+import com.bmuschko.gradle.clover.internal.ForkRecordingAgent
+
+class ForkRecordingAgentSpec extends Specification {
+
+    @Rule
+    TemporaryFolder tempDir = new TemporaryFolder()
+
+    @RestoreSystemProperties
+    def "Fork records into a directory of its own"() {
+        given: "the Clover database of a Test task"
+        File recordingFilesDir = tempDir.newFolder('test')
+        File database = new File(recordingFilesDir, 'clover.db')
+        database.text = 'registry'
+
+        when: "the agent starts"
+        ForkRecordingAgent.premain(database.absolutePath, null)
+
+        then: "the initstring points to the database in the fork directory"
+        File forkDatabase = new File(System.getProperty('clover.initstring'))
+        forkDatabase.parentFile.parentFile == recordingFilesDir
+        forkDatabase.parentFile.name.startsWith(ForkRecordingAgent.FORK_DIR_PREFIX)
+        forkDatabase.text == 'registry'
+    }
+
+    def "Agent jar declares the premain class"() {
+        given: "an agent jar"
+        File jarFile = new File(tempDir.root, 'agent.jar')
+
+        when: "the jar is written"
+        ForkRecordingAgent.writeJar(jarFile)
+
+        then: "the agent class is found"
+        new JarFile(jarFile).withCloseable { JarFile jar ->
+            jar.manifest.mainAttributes.getValue('Premain-Class') == ForkRecordingAgent.name &&
+                jar.getEntry(ForkRecordingAgent.name.replace('.', '/') + '.class') != null
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bmuschko.gradle.clover
+
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+class IncrementalHtmlReportSpec extends Specification {
+
+    @Rule
+    TemporaryFolder tempDir = new TemporaryFolder()
+
+    File reportDir
+    File manifestFile
+
+    def setup() {
+        reportDir = tempDir.newFolder('html')
+        manifestFile = new File(tempDir.root, 'manifest.properties')
+    }
+
+    def "Only changed pages are written and stale pages are deleted"() {
+        given: "a previously written report"
+        File first = report([
+            'index.html': page('index', 'Oct 16'),
+            'lib/Book.html': page('Book 50%', 'Oct 16'),
+            'lib/Shelf.html': page('Shelf 10%', 'Oct 16'),
+            'lib/Gone.html': page('Gone', 'Oct 16')
+        ])
+        IncrementalHtmlReport.update(first, reportDir, manifestFile)
+
+        when: "a new report only differing in timestamps and one page is applied"
+        File second = report([
+            'index.html': page('index', 'Oct 17'),
+            'lib/Book.html': page('Book 50%', 'Oct 17'),
+            'lib/Shelf.html': page('Shelf 80%', 'Oct 17')
+        ])
+        IncrementalHtmlReport.Result result = IncrementalHtmlReport.update(second, reportDir, manifestFile)
+
+        then: "only the changed page is written and the stale one deleted"
+        result.written == 1
+        result.deleted == 1
+        new File(reportDir, 'lib/Shelf.html').text.contains('Shelf 80%')
+        new File(reportDir, 'lib/Book.html').text.contains('Oct 16')
+        !new File(reportDir, 'lib/Gone.html').exists()
+    }
+
+    def "Source lines mentioning a generation date are part of the page"() {
+        given: "a source page showing a line of user code mentioning when something was generated"
+        File file = tempDir.newFile('Book.html')
+        file.text = sourcePage('// generated on Oct 16', 'Oct 16')
+        String fingerprint = IncrementalHtmlReport.getFingerprint(file)
+
+        when: "only the footer timestamp changes"
+        file.text = sourcePage('// generated on Oct 16', 'Oct 17')
+
+        then: "the page is unchanged"
+        IncrementalHtmlReport.getFingerprint(file) == fingerprint
+
+        when: "the source line changes"
+        file.text = sourcePage('// generated on Oct 17', 'Oct 17')
+
+        then: "the page changed"
+        IncrementalHtmlReport.getFingerprint(file) != fingerprint
+    }
+
+    private static String sourcePage(String sourceLine, String date) {
+        "<html>\n<td class=\"srcCell\"><span class=\"srcLine\">${sourceLine}</span></td>\n" +
+            "<div id=\"footer\">Report generated by <a href=\"http://openclover.org/\">OpenClover</a> v 4.4.1 on ${date} 2026</div>\n</html>\n"
+    }
+
+    private File report(Map<String, String> pages) {
+        File dir = tempDir.newFolder()
+        pages.each { path, text ->
+            File file = new File(dir, path)
+            file.parentFile.mkdirs()
+            file.text = text
+        }
+        dir
+    }
+
+    private static String page(String content, String date) {
+        "<html>\n<p>${content}</p>\n<p>Report generated by OpenClover on ${date} 2026</p>\n</html>\n"
+    }
+}
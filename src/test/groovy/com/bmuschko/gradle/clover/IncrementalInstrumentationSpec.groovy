@@ -0,0 +1,127 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bmuschko.gradle.clover
+
+import javax.tools.ToolProvider
+
+import org.gradle.api.Project
+import org.gradle.testfixtures.ProjectBuilder
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+class IncrementalInstrumentationSpec extends Specification {
+
+    @Rule
+    TemporaryFolder tempDir = new TemporaryFolder()
+
+    Project project
+    File srcDir
+    CloverSourceSet sourceSet
+
+    def setup() {
+        project = ProjectBuilder.builder()
+                .withName('test-me')
+                .withProjectDir(tempDir.newFolder())
+                .build()
+        srcDir = tempDir.newFolder('src')
+        sourceSet = project.objects.newInstance(CloverSourceSet)
+        sourceSet.srcDirs = [srcDir]
+        sourceSet.instrumentedClassesDir = tempDir.newFolder('instrumented')
+    }
+
+    def "Dependents of a changed source file are found"() {
+        given: "a changed class and classes referencing it"
+        File book = source('lib/Book.java', 'package lib; public class Book {}')
+        File library = source('lib/Library.java', 'package lib; public class Library { Book book; }')
+        File shelf = source('lib/Shelf.java', 'package lib; public class Shelf { Library library; }')
+        File notebook = source('lib/Notebook.java', 'package lib; public class Notebook {}')
+
+        when: "the stale files are computed"
+        Set<File> staleFiles = IncrementalInstrumentation.withDependents([book] as Set, [sourceSet])
+
+        then: "the changed file and its direct and indirect dependents are stale"
+        staleFiles == [book, library, shelf] as Set
+        !staleFiles.contains(notebook)
+    }
+
+    def "Dependents of secondary types of a changed source file are found"() {
+        given: "a changed source file declaring a second top-level class and a class referencing it"
+        File book = source('lib/Book.java', 'package lib; public class Book {} class Page {}')
+        File chapter = source('lib/Chapter.java', 'package lib; public class Chapter { Page page; }')
+        File notebook = source('lib/Notebook.java', 'package lib; public class Notebook {}')
+
+        when: "the stale files are computed"
+        Set<File> staleFiles = IncrementalInstrumentation.withDependents([book] as Set, [sourceSet])
+
+        then: "the class referencing the secondary type is stale"
+        staleFiles == [book, chapter] as Set
+        !staleFiles.contains(notebook)
+    }
+
+    def "Unchanged source files are taken from the index of the previous scan"() {
+        given: "an index of a previous scan"
+        File book = source('lib/Book.java', 'package lib; public class Book {}')
+        File library = source('lib/Library.java', 'package lib; public class Library { Book book; }')
+        File notebook = source('lib/Notebook.java', 'package lib; public class Notebook { Page page; }')
+        File indexFile = new File(tempDir.root, 'index/source-index.txt')
+        IncrementalInstrumentation.withDependents([book] as Set, [sourceSet], indexFile)
+
+        when: "a source file is rewritten keeping its size and modification time"
+        long lastModified = notebook.lastModified()
+        notebook.text = 'package lib; public class Notebook { Book page; }'
+        notebook.setLastModified(lastModified)
+        Set<File> staleFiles = IncrementalInstrumentation.withDependents([book] as Set, [sourceSet], indexFile)
+
+        then: "the indexed names of the unchanged file are used"
+        staleFiles == [book, library] as Set
+        IncrementalInstrumentation.readIndex(indexFile).keySet() == [book, library, notebook] as Set
+    }
+
+    def "Class files of secondary types of stale sources are deleted"() {
+        given: "classes compiled from a source file declaring two top-level classes"
+        File book = source('lib/Book.java', 'package lib; public class Book {} class Page {}')
+        File bookmark = source('lib/Bookmark.java', 'package lib; public class Bookmark {}')
+        assert ToolProvider.systemJavaCompiler.run(null, null, null, '-g:source', '-d', sourceSet.instrumentedClassesDir.path, book.path, bookmark.path) == 0
+
+        when: "the class files are invalidated"
+        IncrementalInstrumentation.deleteClassFiles([book] as Set, [sourceSet])
+
+        then: "both classes compiled from the source file are gone"
+        new File(sourceSet.instrumentedClassesDir, 'lib').list() as Set == ['Bookmark.class'] as Set
+    }
+
+    def "Class files of stale sources including nested classes are deleted"() {
+        given: "compiled classes for a source file"
+        File book = source('lib/Book.java', 'package lib; public class Book {}')
+        File classesDir = new File(sourceSet.instrumentedClassesDir, 'lib')
+        classesDir.mkdirs()
+        ['Book.class', 'Book$Page.class', 'Book$1.class', 'Bookmark.class'].each { new File(classesDir, it).text = '' }
+
+        when: "the class files are invalidated"
+        IncrementalInstrumentation.deleteClassFiles([book] as Set, [sourceSet])
+
+        then: "only the classes compiled from the source file are gone"
+        classesDir.list() as Set == ['Bookmark.class'] as Set
+    }
+
+    private File source(String path, String text) {
+        File file = new File(srcDir, path)
+        file.parentFile.mkdirs()
+        file.text = text
+        file
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bmuschko.gradle.clover
+
+import javax.tools.ToolProvider
+
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+class InstrumentCodeActionSpec extends Specification {
+
+    @Rule
+    TemporaryFolder tempDir = new TemporaryFolder()
+
+    def "Class files are indexed by their source file"() {
+        given: "classes compiled from a source file declaring several classes"
+        File classesDir = compile('-g:source')
+
+        when: "the classes are indexed"
+        Map<String, List<File>> index = InstrumentCodeAction.getClassFilesBySource(classesDir)
+
+        then: "all classes belong to the source file"
+        index.keySet() == ['com/example/Generated.java'] as Set
+        index['com/example/Generated.java']*.name.sort() == ['Generated$Nested.class', 'Generated.class', 'Helper.class']
+    }
+
+    def "Class files of the default package are indexed by their source file"() {
+        given: "a class of the default package"
+        File sourceFile = new File(tempDir.newFolder('src'), 'Book.java')
+        sourceFile.text = 'public class Book {}'
+        File classesDir = tempDir.newFolder('classes')
+        assert ToolProvider.systemJavaCompiler.run(null, null, null, '-g:source', '-d', classesDir.path, sourceFile.path) == 0
+
+        expect: "the class belongs to the source file"
+        InstrumentCodeAction.getClassFilesBySource(classesDir) == ['Book.java': [new File(classesDir, 'Book.class')]]
+    }
+
+    def "Class files without source file cannot be indexed"() {
+        given: "classes compiled without debug information"
+        File classesDir = compile('-g:none')
+
+        expect: "no index"
+        InstrumentCodeAction.getClassFilesBySource(classesDir) == null
+    }
+
+    def "The most specific package determines the instrumentation level"() {
+        given: "levels for a package and one of its subpackages"
+        Map<String, InstrumentationLevel> levels = ['com.example': InstrumentationLevel.method, 'com.example.core': InstrumentationLevel.statement]
+
+        expect:
+        InstrumentCodeAction.getPackageInstrumentationLevel(levels, path) == level
+
+        where:
+        path                                | level
+        'com/example/Foo.java'              | InstrumentationLevel.method
+        'com/example/perf/Foo.java'         | InstrumentationLevel.method
+        'com/example/core/Foo.java'         | InstrumentationLevel.statement
+        'com/example/core/impl/Foo.java'    | InstrumentationLevel.statement
+        'com/examples/Foo.java'             | null
+        'Foo.java'                          | null
+    }
+
+    private File compile(String debugOption) {
+        File sourceFile = new File(tempDir.newFolder('src', 'com', 'example'), 'Generated.java')
+        sourceFile.text = '''package com.example;
+            public class Generated { static class Nested {} }
+            class Helper {}
+        '''
+        File classesDir = tempDir.newFolder('classes')
+        assert ToolProvider.systemJavaCompiler.run(null, null, null, debugOption, '-d', classesDir.path, sourceFile.path) == 0
+        classesDir
+    }
+}
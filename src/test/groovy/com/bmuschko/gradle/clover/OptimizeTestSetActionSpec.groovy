@@ -0,0 +1,87 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bmuschko.gradle.clover
+
+import org.gradle.api.file.FileTreeElement
+import org.gradle.api.file.RelativePath
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class OptimizeTestSetActionSpec extends Specification {
+
+    @Unroll
+    def "Class file #classFile is selected: #selected"() {
+        given: "an optimized test set"
+        OptimizeTestSetAction action = new OptimizeTestSetAction()
+        action.includes = ['com/acme/CarTest.java', 'com/acme/util/StringsTest.groovy'].collect { OptimizeTestSetAction.getSourceKey(it) } as Set
+
+        expect: "the class file is matched by its class-relative path"
+        action.isSatisfiedBy(element(classFile)) == selected
+
+        where:
+        classFile                            | selected
+        'com/acme/CarTest.class'             | true
+        'com/acme/CarTest$Nested.class'      | true
+        'com/acme/CarTest$1.class'           | true
+        'com/acme/util/StringsTest.class'    | true
+        'com/other/CarTest.class'            | false
+        'com/acme/SportsCarTest.class'       | false
+        'com/acme/CarTest.properties'        | false
+    }
+
+    def "All class files are selected without optimized test set"() {
+        expect: "no filtering"
+        new OptimizeTestSetAction().isSatisfiedBy(element('com/acme/AnyTest.class'))
+    }
+
+    def "Test classes are selected by the source file they were compiled from"() {
+        given: "test classes whose names do not match their source files"
+        Map<String, String> classIndex = [
+            'com/acme/CarTest'         : 'com/acme/CarTest',
+            'com/acme/CarTestKt'       : 'com/acme/CarTest',
+            'com/acme/TruckTest'       : 'com/acme/Vehicles',
+            'com/acme/BusTest'         : 'com/acme/Vehicles',
+            'com/acme/BikeTest'        : 'com/acme/BikeTest',
+            'com/acme/GeneratedTest'   : 'com/acme/GeneratedTest'
+        ]
+        Set<String> knownSources = ['com/acme/CarTest', 'com/acme/Vehicles', 'com/acme/BikeTest'] as Set
+
+        when: "Clover selected a subset of the sources"
+        Set<String> classes = OptimizeTestSetAction.selectTestClasses(classIndex, knownSources, ['com/acme/Vehicles'] as Set)
+
+        then: "classes of selected and unknown sources run"
+        classes == ['com/acme/TruckTest', 'com/acme/BusTest', 'com/acme/GeneratedTest'] as Set
+    }
+
+    def "Class files are indexed by their source file attribute"() {
+        given: "the compiled classes directory of this spec"
+        File classFile = new File(getClass().getResource('OptimizeTestSetActionSpec.class').toURI())
+        File classesDir = classFile.parentFile.parentFile.parentFile.parentFile.parentFile
+
+        when: "the classes are indexed"
+        Map<String, String> classIndex = OptimizeTestSetAction.getClassIndex([classesDir])
+
+        then: "the class maps to its Groovy source"
+        classIndex['com/bmuschko/gradle/clover/OptimizeTestSetActionSpec'] == 'com/bmuschko/gradle/clover/OptimizeTestSetActionSpec'
+    }
+
+    private FileTreeElement element(String path) {
+        FileTreeElement element = Mock(FileTreeElement)
+        element.directory >> false
+        element.relativePath >> RelativePath.parse(true, path)
+        element
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.bmuschko.gradle.clover
+
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+class SyncCloverDatabaseActionSpec extends Specification {
+
+    @Rule
+    TemporaryFolder tempDir = new TemporaryFolder()
+
+    def "Previous recordings are removed and the database is provided"() {
+        given: "a database and a recording files directory of a previous run"
+        File database = tempDir.newFile('clover.db')
+        database.text = 'registry'
+        File recordingFilesDir = tempDir.newFolder('test')
+        new File(recordingFilesDir, 'clover.db').text = 'old registry'
+        new File(recordingFilesDir, 'clover.dbabc_def').text = 'recording'
+
+        when: "the database is synced"
+        SyncCloverDatabaseAction.sync(database, recordingFilesDir)
+
+        then: "only the current database is left"
+        recordingFilesDir.list() as List == ['clover.db']
+        new File(recordingFilesDir, 'clover.db').text == 'registry'
+    }
+
+    def "Files are compared by content"() {
+        given: "files of the same length"
+        File file = tempDir.newFile('a')
+        file.text = 'registry'
+        File same = tempDir.newFile('b')
+        same.text = 'registry'
+        File other = tempDir.newFile('c')
+        other.text = 'registrx'
+
+        expect: "only identical contents match"
+        SyncCloverDatabaseAction.isIdentical(file, same)
+        !SyncCloverDatabaseAction.isIdentical(file, other)
+    }
+}